@@ -9,6 +9,7 @@ from flask_restful import Resource,Api,reqparse
 import requests
 import json
 import os
+import time
 import sqlite3
 from dotenv import load_dotenv
 
@@ -128,7 +129,11 @@ for table in tables:
         table_summaries += f"{row}\n"
 conn.close()
 
-SYSTEM_PROMPT += table_summaries
+def system_prompt(context):
+    """System prompt with the caller's live data summary, or the startup snapshot if none was sent"""
+    if context:
+        return SYSTEM_PROMPT + "\n\n" + context
+    return SYSTEM_PROMPT + table_summaries
 
 #show general info
 #url:http://127.0.0.1:5000/info/
@@ -176,12 +181,14 @@ def chat():
     """
     Main chat endpoint that 3forge will call
     Expects GET with query parameter: /chat?q=user_question&user_id=someuser
+    Optional context=... replaces the startup data snapshot with the caller's live summary
     Returns JSON: {"message": ..., "command": ..., "trader": ..., "status": ...}
     """
     try:
         # Get user query and user_id from URL parameters
         user_query = request.args.get('q', '')
         user_id = request.args.get('user_id', 'default')
+        context = request.args.get('context', '')
         if not user_query:
             return jsonify({
                 "message": "🤖 Error: No query provided",
@@ -198,7 +205,7 @@ def chat():
         history.append({"role": "user", "content": user_query})
         
         # Build messages for OpenAI
-        messages = [{"role": "system", "content": SYSTEM_PROMPT}] + history
+        messages = [{"role": "system", "content": system_prompt(context)}] + history
         
         openai_request = {
             "model": "gpt-3.5-turbo",
@@ -284,6 +291,89 @@ def chat():
             "status": "fallback"
         })
 
+@app.route('/chat/stream', methods=['GET'])
+def chat_stream():
+    """
+    Streaming variant of /chat for the Java chat client
+    Expects GET with query parameters: /chat/stream?q=user_question&user_id=someuser
+    Returns server-sent events: data: {"delta": "..."} per chunk, then data: [DONE]
+    The concatenated deltas are the model's JSON answer ({"message": ..., "command": ..., "trader": ...})
+    If OpenAI fails mid-answer the stream ends with data: {"error": "..."} instead of [DONE]
+    """
+    user_query = request.args.get('q', '')
+    user_id = request.args.get('user_id', 'default')
+    context = request.args.get('context', '')
+    if not user_query:
+        return jsonify({"message": "🤖 Error: No query provided", "status": "error"}), 400
+
+    print(f"📨 Received streaming query: {user_query} (user_id: {user_id})")
+
+    history = user_histories.setdefault(user_id, [])
+    history.append({"role": "user", "content": user_query})
+    messages = [{"role": "system", "content": system_prompt(context)}] + history
+
+    openai_request = {
+        "model": "gpt-3.5-turbo",
+        "messages": messages,
+        "max_tokens": 150,
+        "temperature": 0.7,
+        "stream": True
+    }
+    headers = {
+        "Authorization": f"Bearer {OPENAI_API_KEY}",
+        "Content-Type": "application/json"
+    }
+
+    def events():
+        answer = []
+        finished = False
+        try:
+            with requests.post(OPENAI_API_URL, headers=headers, json=openai_request, stream=True, timeout=10) as response:
+                if response.status_code != 200:
+                    print(f"❌ OpenAI API error: {response.status_code}")
+                    yield "data: " + json.dumps({"delta": json.dumps({
+                        "message": "🤖 I can help you analyze our trading team! Try asking about specific traders, performance metrics, or market insights.",
+                        "status": "fallback"
+                    })}) + "\n\n"
+                    yield "data: [DONE]\n\n"
+                    return
+                for line in response.iter_lines(decode_unicode=True):
+                    if not line or not line.startswith("data:"):
+                        continue
+                    payload = line[5:].strip()
+                    if payload == "[DONE]":
+                        finished = True
+                        break
+                    delta = json.loads(payload)["choices"][0].get("delta", {}).get("content")
+                    if delta:
+                        answer.append(delta)
+                        yield "data: " + json.dumps({"delta": delta}) + "\n\n"
+            if not finished:
+                raise IOError("OpenAI stream ended before [DONE]")
+        except Exception as e:
+            # A partial answer must not look complete - to the client or in the history
+            print(f"💥 Streaming error: {str(e)}")
+            yield "data: " + json.dumps({"error": str(e)}) + "\n\n"
+            return
+
+        history.append({"role": "assistant", "content": "".join(answer)})
+        if len(history) > 20:
+            user_histories[user_id] = history[-20:]
+        yield "data: [DONE]\n\n"
+
+    return Response(events(), mimetype='text/event-stream', headers={"Cache-Control": "no-cache"})
+
+@app.route('/tick', methods=['GET'])
+def tick():
+    """
+    Answers after ms milliseconds (at most 1000) - the dashboard's chat_poll datamodel runs on it as a timer
+    Expects GET with query parameter: /tick?ms=250
+    Returns JSON: {"ms": ...}
+    """
+    ms = min(max(request.args.get('ms', 250, type=int), 0), 1000)
+    time.sleep(ms / 1000.0)
+    return jsonify({"ms": ms})
+
 @app.route('/test', methods=['GET'])
 def test():
     """Test endpoint with sample query"""
@@ -294,6 +384,8 @@ if __name__ == '__main__':
     print("📍 Endpoints:")
     print("   GET  /       - Health check")
     print("   POST /chat   - Main chat endpoint")
+    print("   GET  /chat/stream - Streaming chat (server-sent events)")
+    print("   GET  /tick   - Waits ?ms=..., the chat panel's poll timer")
     print("   GET  /test   - Test with sample query")
     
     # Run on localhost:5000
@@ -0,0 +1,122 @@
+package com.forge.trading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-session chat history, each session held in a fixed-capacity ring buffer.
+ *
+ * Replaces the static, unbounded ArrayList that every user and session used to share.
+ * Once a session is full the oldest exchange is overwritten. Each ring is owned by the
+ * session's ChatSessionStore state and evicted with it when the session goes idle, so memory
+ * stays bounded by (active sessions x capacity). All methods are safe to call from concurrent
+ * web threads.
+ */
+class ChatHistoryStore {
+
+    // Used when AMI script calls the legacy methods without a session
+    static final String DEFAULT_SESSION = "default";
+
+    private final ChatSessionStore sessions;
+
+    ChatHistoryStore(ChatSessionStore sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Returns the history for session, creating it if needed. A null session maps to DEFAULT_SESSION.
+     */
+    SessionHistory get(Object session) {
+        return sessions.get(session).getHistory();
+    }
+
+    /**
+     * Drops session's history along with the rest of its state.
+     */
+    void remove(Object session) {
+        sessions.remove(session);
+    }
+
+    /**
+     * Drops the history (and state) of every session.
+     */
+    void clear() {
+        sessions.clear();
+    }
+
+    int getSessionCount() {
+        return sessions.getSessionCount();
+    }
+
+    /**
+     * Ring buffer of the most recent exchanges for one session.
+     */
+    static class SessionHistory {
+        private final ChatMessage[] ring;
+        private int head = 0;   // index of the oldest message
+        private int count = 0;
+        private long totalAppended = 0;
+        private int earlierPages = 0;   // extra pages shown above the newest window, until the next append
+
+        SessionHistory(int capacity) {
+            this.ring = new ChatMessage[capacity];
+        }
+
+        synchronized void append(ChatMessage message) {
+            if (count < ring.length) {
+                ring[(head + count) % ring.length] = message;
+                count++;
+            } else {
+                ring[head] = message;
+                head = (head + 1) % ring.length;
+            }
+            totalAppended++;
+            earlierPages = 0;
+        }
+
+        /**
+         * Widens the rendered window by one page of earlier messages.
+         */
+        synchronized void showEarlier() {
+            earlierPages++;
+        }
+
+        synchronized int getEarlierPages() {
+            return earlierPages;
+        }
+
+        /**
+         * Returns up to limit messages, skipping the offset newest ones; oldest first.
+         * range(0, n) is the n most recent messages.
+         */
+        synchronized List<ChatMessage> range(int offset, int limit) {
+            int end = Math.max(0, count - Math.max(0, offset));
+            int start = Math.max(0, end - Math.max(0, limit));
+            List<ChatMessage> messages = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                messages.add(ring[(head + i) % ring.length]);
+            }
+            return messages;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        /**
+         * @return every message ever appended, including ones overwritten by the ring
+         */
+        synchronized long getTotalAppended() {
+            return totalAppended;
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = null;
+            }
+            head = 0;
+            count = 0;
+            earlierPages = 0;
+        }
+    }
+}
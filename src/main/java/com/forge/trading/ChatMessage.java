@@ -0,0 +1,21 @@
+package com.forge.trading;
+
+/**
+ * One user/assistant exchange in the chat panel. Immutable once stored.
+ *
+ * The message-pair HTML fragment is rendered once when the exchange is appended, so
+ * redrawing the panel only concatenates cached fragments.
+ */
+class ChatMessage {
+    final String userInput;
+    final String aiResponse;
+    final long timestampMillis;
+    final String fragment;
+
+    ChatMessage(String userInput, String aiResponse, String fragment) {
+        this.userInput = userInput;
+        this.aiResponse = aiResponse;
+        this.timestampMillis = System.currentTimeMillis();
+        this.fragment = fragment;
+    }
+}
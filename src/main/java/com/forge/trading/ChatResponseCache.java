@@ -0,0 +1,218 @@
+package com.forge.trading;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of LLM chat answers keyed by session and normalized query.
+ *
+ * Queries are normalized (case, whitespace, punctuation, trader aliases) so "Who's the top
+ * performer?" and "whos the  TOP performer" share an entry, and "how is mike doing" matches
+ * "how is Mike Chen doing". The proxy answers from each user's own conversation history, so
+ * entries are never shared between sessions.
+ *
+ * Each entry is stamped with the TradeStore version read before the question was sent; once
+ * trades change the entry is treated as a miss, so an answer quoting P&L is never served after
+ * the P&L moved - including when a trade arrived while the LLM was answering. Entries also
+ * expire after the TTL.
+ */
+class ChatResponseCache {
+
+    private final TradeStore store;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Word -> canonical trader key, rebuilt when the store's trader dictionary changes
+    private volatile Map<String, String> aliases;
+    private volatile int aliasTraderCount = -1;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    ChatResponseCache(TradeStore store, final int maxEntries, long ttlMillis) {
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatResponseCache.Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the version to pass to put, read before the question is sent
+     */
+    long getVersion() {
+        return store.getVersion();
+    }
+
+    /**
+     * @return the cached answer for query in session, or null if absent, expired or answered before the latest trade
+     */
+    String get(Object session, String query) {
+        String key = key(session, query);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version == store.getVersion() && now - entry.createdMillis <= ttlMillis) {
+                    hits.incrementAndGet();
+                    return entry.response;
+                }
+                entries.remove(key);
+                stale.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches response for query in session, if no trade has arrived since version was read.
+     */
+    void put(Object session, String query, String response, long version) {
+        if (response == null || response.isEmpty()) {
+            return;
+        }
+        if (version != store.getVersion()) {
+            stale.incrementAndGet(); // already out of date
+            return;
+        }
+        Entry entry = new Entry(response, version, System.currentTimeMillis());
+        String key = key(session, query);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Sessions are told apart as the proxy tells its user_id apart, by username, so an AMI
+     * session and the username the script passes for it share entries.
+     */
+    private String key(Object session, String query) {
+        return LlmClient.userId(session) + '\u0000' + normalize(query);
+    }
+
+    /**
+     * Lower-cases, drops punctuation, collapses whitespace and replaces trader names or
+     * aliases with one canonical token, in a single pass over the query.
+     */
+    String normalize(String query) {
+        Map<String, String> traderAliases = currentAliases();
+        StringBuilder key = new StringBuilder(query.length());
+        StringBuilder word = new StringBuilder(16);
+        String lastTrader = null;
+
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (c == '\'' || word.length() == 0) {
+                continue; // "who's" -> "whos"; runs of separators collapse
+            }
+
+            String token = word.toString();
+            word.setLength(0);
+            String trader = traderAliases.get(token);
+            if (trader == null && token.length() > 1 && token.endsWith("s")) {
+                trader = traderAliases.get(token.substring(0, token.length() - 1)); // "mike's" -> "mikes"
+            }
+            if (trader != null) {
+                if (trader.equals(lastTrader)) {
+                    continue; // "mike chen" - second word of the same trader
+                }
+                token = trader;
+            }
+            lastTrader = trader;
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(token);
+        }
+        return key.toString();
+    }
+
+    private Map<String, String> currentAliases() {
+        int traderCount = store.getTraders().size();
+        Map<String, String> current = aliases;
+        if (current != null && aliasTraderCount == traderCount) {
+            return current;
+        }
+
+        // Built-in demo names first, then every word of every trader seen in the data.
+        // A word shared by two traders (e.g. a common first name) is not an alias for either.
+        Map<String, String> built = new HashMap<>();
+        Map<String, Boolean> ambiguous = new HashMap<>();
+        for (String[] trader : IntentMatcher.TRADERS) {
+            addAliases(built, ambiguous, trader[0]);
+        }
+        TradeStore.Dictionary traders = store.getTraders();
+        for (int code = 0; code < traderCount; code++) {
+            addAliases(built, ambiguous, traders.decode(code));
+        }
+        for (String word : ambiguous.keySet()) {
+            built.remove(word);
+        }
+
+        aliases = built;
+        aliasTraderCount = traderCount;
+        return built;
+    }
+
+    private static void addAliases(Map<String, String> aliases, Map<String, Boolean> ambiguous, String trader) {
+        String canonical = "trader:" + trader.toLowerCase().replace(' ', '_');
+        for (String word : trader.toLowerCase().split("[^\\p{L}\\p{Nd}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String existing = aliases.put(word, canonical);
+            if (existing != null && !existing.equals(canonical)) {
+                ambiguous.put(word, Boolean.TRUE);
+            }
+        }
+    }
+
+    String getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return String.format("Chat response cache: %d/%d entries | hits %d | misses %d | hit rate %.1f%% | stale %d | evictions %d | ttl %ds",
+            size, maxEntries, hitCount, misses.get(), total == 0 ? 0.0 : hitCount * 100.0 / total,
+            stale.get(), evictions.get(), ttlMillis / 1000);
+    }
+
+    private static class Entry {
+        final String response;
+        final long version;
+        final long createdMillis;
+
+        Entry(String response, long version, long createdMillis) {
+            this.response = response;
+            this.version = version;
+            this.createdMillis = createdMillis;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.forge.trading;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Conversational state per AMI session: the trader the bot last offered to filter to,
+ * the last classified intent and the session's chat history.
+ *
+ * Replaces the static lastSuggestedTrader shared by every user, so one user's "yes" only
+ * ever acts on their own suggestion. Lookups go through a ConcurrentHashMap and state
+ * changes are atomic, so concurrent sessions never contend on a common lock. Sessions
+ * idle for longer than the idle timeout are evicted on a later access, history included -
+ * ChatHistoryStore is a view over this store, so this is the only eviction path.
+ */
+class ChatSessionStore {
+
+    private static final long EVICTION_INTERVAL_MILLIS = 60 * 1000L;
+
+    private final ConcurrentHashMap<Object, SessionState> sessions = new ConcurrentHashMap<>();
+    private final int historyCapacity;
+    private final long idleTimeoutMillis;
+    private volatile long nextEvictionMillis;
+
+    /**
+     * @param historyCapacity messages kept in each session's chat history
+     */
+    ChatSessionStore(int historyCapacity, long idleTimeoutMillis) {
+        this.historyCapacity = historyCapacity;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.nextEvictionMillis = System.currentTimeMillis() + EVICTION_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Returns the state for session, creating it if needed. A null session maps to the default session.
+     */
+    SessionState get(Object session) {
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+
+        Object key = session != null ? session : ChatHistoryStore.DEFAULT_SESSION;
+        SessionState state = sessions.get(key);
+        if (state == null) {
+            SessionState created = new SessionState(new ChatHistoryStore.SessionHistory(historyCapacity));
+            state = sessions.putIfAbsent(key, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        state.lastAccessMillis = now;
+        return state;
+    }
+
+    void remove(Object session) {
+        sessions.remove(session != null ? session : ChatHistoryStore.DEFAULT_SESSION);
+    }
+
+    void clear() {
+        sessions.clear();
+    }
+
+    int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void evictIdle(long now) {
+        if (now < nextEvictionMillis) {
+            return;
+        }
+        nextEvictionMillis = now + EVICTION_INTERVAL_MILLIS;
+
+        Iterator<SessionState> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastAccessMillis > idleTimeoutMillis) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * State of one conversation.
+     */
+    static class SessionState {
+        private final ChatHistoryStore.SessionHistory history;
+        private final AtomicReference<String> pendingSuggestion = new AtomicReference<>();
+        private final AtomicReference<IntentMatcher.Intent> lastIntent = new AtomicReference<>();
+        volatile long lastAccessMillis;
+
+        SessionState(ChatHistoryStore.SessionHistory history) {
+            this.history = history;
+        }
+
+        /**
+         * Remembers trader as the one to filter to if the user confirms.
+         */
+        void suggest(String trader) {
+            pendingSuggestion.set(trader);
+        }
+
+        /**
+         * Atomically takes the pending suggestion, so a confirmation is acted on at most once.
+         *
+         * @return the suggested trader, or null if there is none
+         */
+        String takeSuggestion() {
+            return pendingSuggestion.getAndSet(null);
+        }
+
+        String getPendingSuggestion() {
+            return pendingSuggestion.get();
+        }
+
+        /**
+         * @return the previous intent
+         */
+        IntentMatcher.Intent recordIntent(IntentMatcher.Intent intent) {
+            return lastIntent.getAndSet(intent);
+        }
+
+        IntentMatcher.Intent getLastIntent() {
+            return lastIntent.get();
+        }
+
+        /**
+         * The session's chat history, evicted along with this state.
+         */
+        ChatHistoryStore.SessionHistory getHistory() {
+            return history;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.forge.trading;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker in front of the LLM proxy.
+ *
+ * CLOSED lets every call through. After failureThreshold consecutive failures (errors or
+ * timeouts) it opens and callers are short-circuited to the local answer. Once openMillis
+ * has passed a single probe call is let through (HALF_OPEN): success closes the breaker,
+ * failure opens it for another openMillis. All transitions are lock-free.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtMillis;
+
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong probes = new AtomicLong();
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return true if a call may go upstream; when OPEN and the cool-down has passed, only the caller that wins the probe
+     */
+    boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.currentTimeMillis() - openedAtMillis >= openMillis
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            probes.incrementAndGet();
+            return true;
+        }
+        shortCircuited.incrementAndGet();
+        return false;
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    void recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (state.get() == State.HALF_OPEN || failures >= failureThreshold) {
+            openedAtMillis = System.currentTimeMillis();
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                trips.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The allowed call never reached upstream (e.g. the client was busy). A pending probe is
+     * handed back so the next caller probes instead; the failure count is unchanged.
+     */
+    void releaseProbe() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    String getStats() {
+        return String.format("breaker %s (failures %d/%d, trips %d, short-circuited %d, probes %d, open %ds)",
+            state.get(), consecutiveFailures.get(), failureThreshold, trips.get(), shortCircuited.get(),
+            probes.get(), openMillis / 1000);
+    }
+}
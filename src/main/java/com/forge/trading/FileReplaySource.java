@@ -0,0 +1,172 @@
+package com.forge.trading;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replays a recorded feed file into a TradeFeed, for testing the feed without a live source.
+ *
+ * The file holds relay object messages, one per line, as TradeFeed writes them (record one
+ * with a TradeFeed.WriterSink). Every table the feed publishes is republished in file order
+ * with fresh sequence numbers; other lines are skipped. With speed > 0 the gaps between
+ * timestamps are replayed in real time divided by speed, otherwise as fast as the feed accepts.
+ */
+class FileReplaySource {
+
+    private final Path file;
+    private final double speed;
+
+    private long replayed;
+    private long skipped;
+    private long rejected;
+
+    FileReplaySource(Path file, double speed) {
+        this.file = file;
+        this.speed = speed;
+    }
+
+    /**
+     * Publishes every event in the file to feed, returning when the file is exhausted.
+     *
+     * @return the number of events published
+     */
+    long replay(TradeFeed feed) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long firstTimestamp = Long.MIN_VALUE;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Map<String, Object> fields = parse(line);
+                if (fields == null) {
+                    skipped++;
+                    continue;
+                }
+
+                Object timestamp = fields.get("timestamp");
+                if (speed > 0 && timestamp instanceof Long) {
+                    if (firstTimestamp == Long.MIN_VALUE) {
+                        firstTimestamp = (Long) timestamp;
+                    }
+                    long dueNanos = start + (long) (((Long) timestamp - firstTimestamp) * 1e6 / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+                    }
+                }
+
+                long seq = publish(feed, fields);
+                if (seq > 0) {
+                    replayed++;
+                } else if (seq < 0) {
+                    rejected++;
+                } else {
+                    skipped++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * @return the feed sequence number, -1 if the feed rejected the event, 0 if it is not a known table
+     */
+    private static long publish(TradeFeed feed, Map<String, Object> f) {
+        switch (String.valueOf(f.get("T"))) {
+            case "trades":
+                return feed.publishTrade(asLong(f, "timestamp"), asString(f, "symbol"), asDouble(f, "price"),
+                    asLong(f, "volume"), asString(f, "side"), asString(f, "trader"), asString(f, "desk"), asDouble(f, "pnl"));
+            case "orders":
+                return feed.publishOrder(asString(f, "orderId"), asString(f, "symbol"), asString(f, "side"),
+                    asLong(f, "quantity"), asDouble(f, "price"), asString(f, "status"), asLong(f, "timestamp"),
+                    asString(f, "trader"), asLong(f, "fillQuantity"));
+            case "marketdata":
+                return feed.publishMarketData(asString(f, "symbol"), asDouble(f, "bid"), asDouble(f, "ask"),
+                    asDouble(f, "last"), asLong(f, "volume"), asDouble(f, "change"), asDouble(f, "changePercent"),
+                    asLong(f, "timestamp"), asString(f, "exchange"));
+            case "positions":
+                return feed.publishPosition(asString(f, "account"), asString(f, "symbol"), asLong(f, "quantity"),
+                    asDouble(f, "avgPrice"), asDouble(f, "marketValue"), asDouble(f, "unrealizedPnl"),
+                    asDouble(f, "realizedPnl"), asLong(f, "lastUpdate"));
+            case "riskmetrics":
+                return feed.publishRiskMetrics(asString(f, "desk"), asDouble(f, "var95"), asDouble(f, "var99"),
+                    asDouble(f, "expectedShortfall"), asDouble(f, "exposure"), asDouble(f, "leverage"), asLong(f, "timestamp"));
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Parses an object message O|T="table"|name=value|... into name to String, Long or Double
+     * (quoted, L-suffixed, anything else).
+     *
+     * @return the fields, or null if line is not an object message
+     */
+    static Map<String, Object> parse(String line) {
+        if (!line.startsWith("O|")) {
+            return null;
+        }
+        Map<String, Object> fields = new HashMap<>();
+        int pos = 2;
+        while (pos < line.length()) {
+            int equals = line.indexOf('=', pos);
+            if (equals < 0) {
+                return null;
+            }
+            String name = line.substring(pos, equals);
+            int end;
+            if (equals + 1 < line.length() && line.charAt(equals + 1) == '"') {
+                StringBuilder value = new StringBuilder();
+                end = equals + 2;
+                while (end < line.length() && line.charAt(end) != '"') {
+                    if (line.charAt(end) == '\\' && end + 1 < line.length()) {
+                        end++;
+                    }
+                    value.append(line.charAt(end++));
+                }
+                fields.put(name, value.toString());
+                end++; // closing quote
+            } else {
+                end = line.indexOf('|', equals);
+                if (end < 0) {
+                    end = line.length();
+                }
+                String value = line.substring(equals + 1, end);
+                try {
+                    if (value.endsWith("L")) {
+                        fields.put(name, Long.parseLong(value.substring(0, value.length() - 1)));
+                    } else {
+                        fields.put(name, Double.parseDouble(value.endsWith("D") ? value.substring(0, value.length() - 1) : value));
+                    }
+                } catch (NumberFormatException e) {
+                    fields.put(name, value);
+                }
+            }
+            pos = end + 1; // past the '|'
+        }
+        return fields;
+    }
+
+    private static String asString(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        return value != null ? value.toString() : null;
+    }
+
+    private static long asLong(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static double asDouble(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    String getStats() {
+        return String.format("Replay %s: %d events | %d skipped | %d rejected", file.getFileName(), replayed, skipped, rejected);
+    }
+}
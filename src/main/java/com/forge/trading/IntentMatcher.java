@@ -0,0 +1,391 @@
+package com.forge.trading;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single-pass intent matcher for chat messages.
+ *
+ * Every command keyword, trader name and symbol is compiled into one Aho-Corasick automaton,
+ * so a message is scanned exactly once however many patterns there are. Trader and symbol
+ * names come from the TradeStore dictionaries as well as the built-in demo names; the automaton
+ * is rebuilt when the dictionaries change, never while a message is being matched.
+ */
+final class IntentMatcher implements TradeStore.Listener {
+
+    enum Keyword {
+        TOP_PERFORMER, WHO_TRADES, RESET, LIST_TRADERS, SHOW, CONFIRM, VOLUME, HELP,
+        LLM_QUERY   // open questions the LLM should answer
+    }
+
+    /**
+     * Typed intent of a message, see Match.getIntent() for precedence.
+     */
+    enum Intent {
+        TOP_PERFORMER, WHO_TRADES, RESET, LIST_TRADERS, FILTER_TRADER, TRADER, CONFIRM, VOLUME, HELP, UNKNOWN
+    }
+
+    // A reply longer than this is not taken as a bare confirmation, whatever its words
+    private static final int MAX_CONFIRMATION_WORDS = 3;
+
+    private static final IntentMatcher INSTANCE = new IntentMatcher(TradeStore.getInstance());
+
+    // Keywords keep the substring semantics of the old contains() chains, except confirmations:
+    // those are whole words, so "ok" is not found in "stock" nor "yes" in "eyes"
+    private static final Object[][] KEYWORDS = {
+        {Keyword.TOP_PERFORMER, new String[] {"best", "top performer", "top trader", "who's the"}},
+        {Keyword.WHO_TRADES, new String[] {"who trades"}},
+        {Keyword.RESET, new String[] {"reset", "clear", "show all"}},
+        {Keyword.LIST_TRADERS, new String[] {"list traders", "list all traders", "all traders", "every trader", "leaderboard", "ranking"}},
+        {Keyword.SHOW, new String[] {"show me", "filter"}},
+        {Keyword.CONFIRM, new String[] {"yes", "yeah", "yep", "sure", "ok", "okay", "please"}},
+        {Keyword.VOLUME, new String[] {"volume", "activity", "busy"}},
+        {Keyword.HELP, new String[] {"help", "what can you do", "examples"}},
+        {Keyword.LLM_QUERY, new String[] {"help", "who", "what", "how", "risk", "performance"}},
+    };
+
+    // Demo traders and the names they are referred to by
+    static final String[][] TRADERS = {
+        {"Mike Chen", "mike", "chen"},
+        {"Sarah Jones", "sarah", "jones"},
+        {"Lisa Wang", "lisa", "wang"},
+        {"John Smith", "john", "smith"},
+        {"Tom Brown", "tom", "brown"},
+        {"Emma Davis", "emma", "davis"},
+    };
+
+    private static final String[][] SYMBOLS = {
+        {"TSLA", "tesla"}, {"AAPL", "apple"}, {"MSFT", "microsoft"}, {"GOOGL", "google"},
+        {"NVDA", "nvidia"}, {"META"}, {"AMZN", "amazon"}, {"ORCL", "oracle"}, {"INTC", "intel"},
+    };
+
+    private final TradeStore store;
+    private volatile Automaton automaton;
+    private volatile boolean stale = true;
+
+    IntentMatcher(TradeStore store) {
+        this.store = store;
+        if (store != null) {
+            store.addListener(this);
+        }
+    }
+
+    static IntentMatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds every keyword, trader and symbol in text in one pass. Matching is case-insensitive.
+     */
+    Match match(CharSequence text) {
+        Automaton current = current();
+        Match match = new Match();
+        if (text == null) {
+            return match;
+        }
+
+        Node node = current.root;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+                match.words++;
+            }
+            Node next = node.child(c);
+            while (next == null && node != current.root) {
+                node = node.fail;
+                next = node.child(c);
+            }
+            node = next != null ? next : current.root;
+
+            for (Term term : node.outputs) {
+                if (!term.wholeWord || isWordBoundary(text, i - term.length, i + 1)) {
+                    match.add(term);
+                }
+            }
+        }
+        return match;
+    }
+
+    @Override
+    public void onTrade(TradeStore store, int row) {
+        // Dictionary growth is picked up by the size check in current()
+    }
+
+    @Override
+    public void onClear(TradeStore store) {
+        stale = true;
+    }
+
+    private Automaton current() {
+        Automaton current = automaton;
+        if (current != null && !stale && !current.isOutdated(store)) {
+            return current;
+        }
+        synchronized (this) {
+            current = automaton;
+            if (current == null || stale || current.isOutdated(store)) {
+                stale = false;
+                current = build();
+                automaton = current;
+            }
+            return current;
+        }
+    }
+
+    private Automaton build() {
+        Automaton built = new Automaton();
+        for (Object[] entry : KEYWORDS) {
+            Keyword keyword = (Keyword) entry[0];
+            for (String pattern : (String[]) entry[1]) {
+                built.add(pattern, new Term(keyword, null, null, pattern.length(), keyword == Keyword.CONFIRM));
+            }
+        }
+        for (String[] trader : TRADERS) {
+            for (int i = 0; i < trader.length; i++) {
+                String pattern = trader[i].toLowerCase();
+                built.add(pattern, new Term(null, trader[0], null, pattern.length(), true));
+            }
+        }
+        for (String[] symbol : SYMBOLS) {
+            for (int i = 0; i < symbol.length; i++) {
+                String pattern = symbol[i].toLowerCase();
+                built.add(pattern, new Term(null, null, symbol[0], pattern.length(), true));
+            }
+        }
+
+        if (store != null) {
+            TradeStore.Dictionary traders = store.getTraders();
+            built.traderCount = traders.size();
+            for (int code = 0; code < built.traderCount; code++) {
+                String trader = traders.decode(code);
+                String pattern = trader.toLowerCase();
+                if (pattern.length() >= 2) {
+                    built.add(pattern, new Term(null, trader, null, pattern.length(), true));
+                }
+            }
+            // Single letters would match ordinary words ("a"), so only longer tickers are recognised
+            TradeStore.Dictionary symbols = store.getSymbols();
+            built.symbolCount = symbols.size();
+            for (int code = 0; code < built.symbolCount; code++) {
+                String symbol = symbols.decode(code);
+                String pattern = symbol.toLowerCase();
+                if (pattern.length() >= 2) {
+                    built.add(pattern, new Term(null, null, symbol, pattern.length(), true));
+                }
+            }
+        }
+
+        built.link();
+        return built;
+    }
+
+    private static boolean isWordBoundary(CharSequence text, int before, int after) {
+        return (before < 0 || !Character.isLetterOrDigit(text.charAt(before)))
+            && (after >= text.length() || !Character.isLetterOrDigit(text.charAt(after)));
+    }
+
+    /**
+     * Everything found in one message.
+     */
+    static final class Match {
+        private int keywords;
+        private int words;
+        private int confirmationWords;
+        private List<String> traders = Collections.emptyList();
+        private List<String> symbols = Collections.emptyList();
+
+        boolean has(Keyword keyword) {
+            return (keywords & (1 << keyword.ordinal())) != 0;
+        }
+
+        /**
+         * @return the first trader mentioned, or null
+         */
+        String getTrader() {
+            return traders.isEmpty() ? null : traders.get(0);
+        }
+
+        List<String> getTraders() {
+            return traders;
+        }
+
+        /**
+         * @return the first symbol mentioned, or null
+         */
+        String getSymbol() {
+            return symbols.isEmpty() ? null : symbols.get(0);
+        }
+
+        List<String> getSymbols() {
+            return symbols;
+        }
+
+        /**
+         * @return true if the message is a short reply made up only of confirmation words ("yes please")
+         */
+        boolean isConfirmation() {
+            return confirmationWords > 0 && confirmationWords == words && words <= MAX_CONFIRMATION_WORDS;
+        }
+
+        /**
+         * Commands win over mentions: top performer, "who trades" a symbol, reset, a trader listing,
+         * then an explicit show/confirm of a named trader, a bare trader mention, a bare confirmation
+         * (see isConfirmation), a show request with no trader, volume and finally help.
+         * TradingAiChatbot keeps its original order instead, where a named trader comes first.
+         */
+        Intent getIntent() {
+            String trader = getTrader();
+            if (has(Keyword.TOP_PERFORMER)) {
+                return Intent.TOP_PERFORMER;
+            } else if (has(Keyword.WHO_TRADES) && getSymbol() != null) {
+                return Intent.WHO_TRADES;
+            } else if (has(Keyword.RESET)) {
+                return Intent.RESET;
+            } else if (has(Keyword.LIST_TRADERS) && trader == null) {
+                return Intent.LIST_TRADERS;
+            } else if (trader != null && (has(Keyword.SHOW) || has(Keyword.CONFIRM))) {
+                return Intent.FILTER_TRADER;
+            } else if (trader != null) {
+                return Intent.TRADER;
+            } else if (isConfirmation()) {
+                return Intent.CONFIRM;
+            } else if (has(Keyword.SHOW)) {
+                return Intent.FILTER_TRADER;
+            } else if (has(Keyword.VOLUME)) {
+                return Intent.VOLUME;
+            } else if (has(Keyword.HELP)) {
+                return Intent.HELP;
+            }
+            return Intent.UNKNOWN;
+        }
+
+        private void add(Term term) {
+            if (term.keyword != null) {
+                keywords |= 1 << term.keyword.ordinal();
+                if (term.keyword == Keyword.CONFIRM) {
+                    confirmationWords++;
+                }
+            } else if (term.trader != null) {
+                traders = addDistinct(traders, term.trader);
+            } else {
+                symbols = addDistinct(symbols, term.symbol);
+            }
+        }
+
+        private static List<String> addDistinct(List<String> values, String value) {
+            if (values.isEmpty()) {
+                values = new ArrayList<>(2);
+            } else if (values.contains(value)) {
+                return values;
+            }
+            values.add(value);
+            return values;
+        }
+    }
+
+    private static final class Term {
+        final Keyword keyword;
+        final String trader;
+        final String symbol;
+        final int length;
+        final boolean wholeWord;
+
+        Term(Keyword keyword, String trader, String symbol, int length, boolean wholeWord) {
+            this.keyword = keyword;
+            this.trader = trader;
+            this.symbol = symbol;
+            this.length = length;
+            this.wholeWord = wholeWord;
+        }
+    }
+
+    private static final class Node {
+        private static final Term[] NO_TERMS = new Term[0];
+
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        Node fail;
+        Term[] outputs = NO_TERMS;
+
+        Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char c) {
+            Node child = child(c);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = c;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+
+        void addOutputs(Term[] terms) {
+            if (terms.length > 0) {
+                Term[] merged = Arrays.copyOf(outputs, outputs.length + terms.length);
+                System.arraycopy(terms, 0, merged, outputs.length, terms.length);
+                outputs = merged;
+            }
+        }
+    }
+
+    private static final class Automaton {
+        final Node root = new Node();
+        int traderCount;
+        int symbolCount;
+
+        void add(String pattern, Term term) {
+            if (pattern.isEmpty()) {
+                return;
+            }
+            Node node = root;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.addChild(pattern.charAt(i));
+            }
+            node.addOutputs(new Term[] {term});
+        }
+
+        /**
+         * Breadth-first pass setting failure links and folding each node's suffix outputs into it.
+         */
+        void link() {
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            for (Node child : root.children) {
+                child.fail = root;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                for (int i = 0; i < node.keys.length; i++) {
+                    char c = node.keys[i];
+                    Node child = node.children[i];
+                    Node fail = node.fail;
+                    while (fail != root && fail.child(c) == null) {
+                        fail = fail.fail;
+                    }
+                    Node target = fail.child(c);
+                    child.fail = target != null && target != child ? target : root;
+                    child.addOutputs(child.fail.outputs);
+                    queue.add(child);
+                }
+            }
+        }
+
+        boolean isOutdated(TradeStore store) {
+            return store != null
+                && (store.getTraders().size() != traderCount || store.getSymbols().size() != symbolCount);
+        }
+    }
+}
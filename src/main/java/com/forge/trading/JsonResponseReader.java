@@ -0,0 +1,263 @@
+package com.forge.trading;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single-pass reader for the flat JSON objects the chatbot and LLM proxy return.
+ *
+ * The input is walked once; every top-level field is stored in a reusable Result, with
+ * string values unescaped in the same pass. Values without escapes are copied straight out
+ * of the input. Nested objects and arrays are skipped, numbers and literals are kept as text.
+ *
+ * Responses built in AMI script by string concatenation can carry raw quotes inside the
+ * message, so a quote only closes a string when a ',', '}' or ':' (or the end) follows it.
+ */
+final class JsonResponseReader {
+
+    private static final ThreadLocal<Result> LAST_RESULT = new ThreadLocal<Result>() {
+        @Override
+        protected Result initialValue() {
+            return new Result();
+        }
+    };
+
+    private JsonResponseReader() {
+    }
+
+    /**
+     * Parses json into this thread's reusable Result. Parsing the same String again
+     * (AMI script reading message, command and trader in turn) reuses the previous result.
+     * The returned Result is only valid until the next call on this thread.
+     */
+    static Result parse(CharSequence json) {
+        Result result = LAST_RESULT.get();
+        if (json instanceof String && json == result.source) {
+            return result;
+        }
+        parse(json, result);
+        result.source = json instanceof String ? json : null;
+        return result;
+    }
+
+    /**
+     * Parses json into result, replacing its previous contents.
+     *
+     * @return false if json is not a JSON object; fields read before a syntax error are kept
+     */
+    static boolean parse(CharSequence json, Result result) {
+        result.clear();
+        if (json == null) {
+            return false;
+        }
+
+        int length = json.length();
+        int pos = skipWhitespace(json, 0);
+        if (pos >= length || json.charAt(pos) != '{') {
+            return false;
+        }
+        pos++;
+
+        StringBuilder scratch = result.scratch;
+        while (true) {
+            pos = skipWhitespace(json, pos);
+            if (pos >= length) {
+                return false;
+            }
+            char c = json.charAt(pos);
+            if (c == '}') {
+                result.valid = true;
+                return true;
+            }
+            if (c == ',') {
+                pos++;
+                continue;
+            }
+            if (c != '"') {
+                return false;
+            }
+
+            pos = readString(json, pos, scratch);
+            String name = scratch.toString();
+            pos = skipWhitespace(json, pos);
+            if (pos >= length || json.charAt(pos) != ':') {
+                return false;
+            }
+            pos = skipWhitespace(json, pos + 1);
+            if (pos >= length) {
+                return false;
+            }
+
+            c = json.charAt(pos);
+            if (c == '"') {
+                int start = pos + 1;
+                pos = readString(json, pos, scratch);
+                // No escapes: the value is exactly the quoted span, copy it without the scratch buffer
+                int end = pos - 1;
+                result.fields.put(name, end - start == scratch.length()
+                    ? json.subSequence(start, end).toString() : scratch.toString());
+            } else if (c == '{' || c == '[') {
+                pos = skipNested(json, pos);
+            } else {
+                int start = pos;
+                while (pos < length && ",}".indexOf(json.charAt(pos)) < 0 && !Character.isWhitespace(json.charAt(pos))) {
+                    pos++;
+                }
+                String literal = json.subSequence(start, pos).toString();
+                result.fields.put(name, "null".equals(literal) ? null : literal);
+            }
+        }
+    }
+
+    /**
+     * Reads the string starting at the opening quote at pos into out, unescaping as it goes.
+     *
+     * @return the position just after the closing quote
+     */
+    private static int readString(CharSequence json, int pos, StringBuilder out) {
+        out.setLength(0);
+        int length = json.length();
+        pos++;
+        while (pos < length) {
+            char c = json.charAt(pos++);
+            if (c == '"') {
+                if (closesString(json, pos)) {
+                    return pos;
+                }
+                out.append(c);
+            } else if (c == '\\' && pos < length) {
+                char escaped = json.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 <= length) {
+                            int code = parseHex(json, pos);
+                            if (code >= 0) {
+                                out.append((char) code);
+                                pos += 4;
+                                break;
+                            }
+                        }
+                        out.append("\\u");
+                        break;
+                    default:
+                        out.append(escaped); // \" \\ \/
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        return length + 1; // unterminated - as if closed just past the end
+    }
+
+    private static boolean closesString(CharSequence json, int pos) {
+        pos = skipWhitespace(json, pos);
+        if (pos >= json.length()) {
+            return true;
+        }
+        char next = json.charAt(pos);
+        return next == ',' || next == '}' || next == ':' || next == ']';
+    }
+
+    private static int skipNested(CharSequence json, int pos) {
+        int depth = 0;
+        int length = json.length();
+        while (pos < length) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                pos++;
+                while (pos < length && json.charAt(pos) != '"') {
+                    pos += json.charAt(pos) == '\\' ? 2 : 1;
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int parseHex(CharSequence json, int pos) {
+        int code = 0;
+        for (int i = pos; i < pos + 4; i++) {
+            int digit = Character.digit(json.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            code = code * 16 + digit;
+        }
+        return code;
+    }
+
+    private static int skipWhitespace(CharSequence json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Top-level fields of one response. Reused between parses - copy values out if they must outlive it.
+     */
+    static final class Result {
+        private final Map<String, String> fields = new HashMap<>();
+        private final StringBuilder scratch = new StringBuilder(256);
+        private CharSequence source;
+        private boolean valid;
+
+        /**
+         * @return the field's value as text, or null if it is absent, null, an object or an array
+         */
+        String get(String name) {
+            return fields.get(name);
+        }
+
+        boolean has(String name) {
+            return fields.containsKey(name);
+        }
+
+        String getMessage() {
+            return fields.get("message");
+        }
+
+        String getCommand() {
+            return fields.get("command");
+        }
+
+        String getTrader() {
+            return fields.get("trader");
+        }
+
+        /**
+         * @return true if the input was a complete JSON object
+         */
+        boolean isValid() {
+            return valid;
+        }
+
+        private void clear() {
+            fields.clear();
+            source = null;
+            valid = false;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.forge.trading;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous client for the chat proxy's /chat endpoint (openai_proxy.py).
+ *
+ * Requests run on a small daemon pool, never on the AMI web thread that asked. At most
+ * maxInFlight requests are outstanding; further requests fail fast instead of queueing
+ * behind a slow upstream. Response bodies are always read to the end and closed so the
+ * JDK keeps the connection alive for the next request.
+ */
+class LlmClient {
+
+    static final String DEFAULT_BASE_URL = System.getProperty("trading.llm.baseUrl", "http://127.0.0.1:5000");
+
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private final String baseUrl;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+
+    LlmClient(String baseUrl, int maxInFlight, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.inFlight = new Semaphore(this.maxInFlight);
+
+        // The semaphore bounds the queue, so it never holds more than maxInFlight tasks
+        this.executor = new ThreadPoolExecutor(this.maxInFlight, this.maxInFlight, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "trading-dashboard-llm-" + THREAD_IDS.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Sends query to GET /chat?q=...&user_id=...&context=... and completes with the raw JSON body.
+     * context replaces the proxy's startup data snapshot in the system prompt; null keeps the snapshot.
+     * Completes exceptionally on timeout, HTTP error or when maxInFlight requests are already outstanding.
+     */
+    CompletableFuture<String> chat(final String query, final Object userId, final String context) {
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return get(chatPath("/chat", query, userId, context));
+            }
+        });
+    }
+
+    /**
+     * Receives the completion text as it streams in.
+     */
+    interface StreamListener {
+        /**
+         * @param text everything received so far
+         */
+        void onText(String text);
+    }
+
+    /**
+     * Streams the answer to query from GET /chat/stream as server-sent events. Each event is
+     * data: {"delta": "..."} and the stream ends with data: [DONE]. listener is called on the
+     * client thread after every delta; the future completes with the full completion text.
+     * A data: {"error": "..."} event, or a stream that ends before [DONE], fails the future.
+     */
+    CompletableFuture<String> stream(final String query, final Object userId, final String context,
+                                     final StreamListener listener) {
+        return submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return readEvents(chatPath("/chat/stream", query, userId, context), listener);
+            }
+        });
+    }
+
+    private CompletableFuture<String> submit(final Callable<String> request) {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        if (!inFlight.tryAcquire()) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException(
+                "LLM client busy: " + maxInFlight + " requests already in flight"));
+            return result;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        String body = request.call();
+                        totalLatencyMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        completed.incrementAndGet();
+                        result.complete(body);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        result.completeExceptionally(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * The user_id the proxy knows a session by: its username, as the AMI script sends it.
+     * A String is taken to be the username already.
+     */
+    static String userId(Object session) {
+        if (session == null) {
+            return ChatHistoryStore.DEFAULT_SESSION;
+        }
+        if (session instanceof String) {
+            return (String) session;
+        }
+        try {
+            ReflectiveDispatch.Binding getUsername = ReflectiveDispatch.bind(session, ReflectiveDispatch.Op.GET_USERNAME);
+            Object username = getUsername != null ? getUsername.invoke(session) : null;
+            if (username != null) {
+                return username.toString();
+            }
+        } catch (Exception e) {
+            System.out.println("Cannot read the session's username: " + e.getMessage());
+        }
+        return session.toString();
+    }
+
+    private static String chatPath(String endpoint, String query, Object userId, String context) throws IOException {
+        String path = endpoint + "?q=" + URLEncoder.encode(query, "UTF-8")
+            + "&user_id=" + URLEncoder.encode(userId(userId), "UTF-8");
+        return context != null && !context.isEmpty() ? path + "&context=" + URLEncoder.encode(context, "UTF-8") : path;
+    }
+
+    private HttpURLConnection open(String path, String accept) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis); // for streams: the longest gap between events
+        connection.setRequestProperty("Accept", accept);
+        return connection;
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open(path, "application/json");
+        int status = connection.getResponseCode();
+        InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        String body = stream != null ? readFully(stream) : "";
+        if (status >= 400) {
+            throw new IOException("LLM proxy returned HTTP " + status + ": " + body);
+        }
+        return body;
+    }
+
+    private String readEvents(String path, StreamListener listener) throws IOException {
+        HttpURLConnection connection = open(path, "text/event-stream");
+        int status = connection.getResponseCode();
+        if (status >= 400) {
+            InputStream error = connection.getErrorStream();
+            throw new IOException("LLM proxy returned HTTP " + status + ": " + (error != null ? readFully(error) : ""));
+        }
+
+        StringBuilder text = new StringBuilder(512);
+        StringBuilder data = new StringBuilder(128);
+        JsonResponseReader.Result event = new JsonResponseReader.Result();
+        boolean done = false;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("data:")) {
+                    if (data.length() > 0) {
+                        data.append('\n'); // multi-line event
+                    }
+                    data.append(line, line.length() > 5 && line.charAt(5) == ' ' ? 6 : 5, line.length());
+                    continue;
+                }
+                if (!line.isEmpty() || data.length() == 0) {
+                    continue; // comments, event names and keep-alives
+                }
+
+                // Blank line ends the event
+                if ("[DONE]".contentEquals(data)) {
+                    done = true;
+                    break;
+                }
+                JsonResponseReader.parse(data, event);
+                String delta = event.get("delta");
+                data.setLength(0);
+                if (event.has("error")) {
+                    throw new IOException("LLM proxy stream failed: " + event.get("error"));
+                }
+                if (delta != null && !delta.isEmpty()) {
+                    text.append(delta);
+                    listener.onText(text.toString());
+                }
+            }
+            // Drain so the connection can be reused
+            while (reader.read() != -1) {
+                // discard
+            }
+        } finally {
+            reader.close();
+        }
+        if (!done) {
+            throw new IOException("LLM proxy stream ended before [DONE]");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads to the end and closes, which returns the connection to the keep-alive cache.
+     */
+    static String readFully(InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            stream.close();
+        }
+    }
+
+    int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    String getStats() {
+        long done = completed.get();
+        return String.format("LLM client: %s | in flight %d/%d | completed %d | failed %d | rejected %d | avg latency %dms",
+            baseUrl, getInFlight(), maxInFlight, done, failed.get(), rejected.get(),
+            done == 0 ? 0 : totalLatencyMillis.get() / done);
+    }
+
+    /**
+     * Stops accepting requests; ones already running finish on their own threads.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,248 @@
+package com.forge.trading;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decides how each chat message is answered and keeps the LLM from ever stalling the chat.
+ *
+ * Messages the intent engine resolves deterministically (reset, a named trader, "yes" to a
+ * pending suggestion, questions LocalQueryEngine answers from the trade data) are answered
+ * locally even when they contain "who/what/how". Everything else goes upstream with a latency
+ * budget: if the LLM has not answered when the budget runs out, the local answer is used
+ * instead. Timeouts and errors feed a CircuitBreaker, so a degraded proxy is skipped entirely
+ * until a probe call succeeds again.
+ */
+class LlmRouter {
+
+    enum Route { LOCAL, CACHE, LLM, FALLBACK }
+
+    private static final AtomicLong THREAD_IDS = new AtomicLong();
+
+    private final CircuitBreaker breaker;
+    private volatile long budgetMillis;
+
+    private final Map<Route, LatencyStats> latencies = new EnumMap<>(Route.class);
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+    private final AtomicLong lateResponses = new AtomicLong();
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    LlmRouter(long budgetMillis, int failureThreshold, long openMillis) {
+        this.budgetMillis = budgetMillis;
+        this.breaker = new CircuitBreaker(failureThreshold, openMillis);
+        for (Route route : Route.values()) {
+            latencies.put(route, new LatencyStats());
+        }
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "trading-dashboard-llm-budget-" + THREAD_IDS.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timer.setKeepAliveTime(60, TimeUnit.SECONDS);
+        this.timer.allowCoreThreadTimeOut(true); // a replaced router leaves no thread behind
+    }
+
+    /**
+     * @return true if the local intent engine answers match without guessing
+     */
+    boolean resolvesLocally(IntentMatcher.Match match, ChatSessionStore.SessionState state) {
+        IntentMatcher.Intent intent = match.getIntent();
+        if (intent == IntentMatcher.Intent.CONFIRM) {
+            // A bare "yes" is ours only if this session has our suggestion; else it answers the LLM's last question
+            return state.getPendingSuggestion() != null;
+        }
+        if (!match.has(IntentMatcher.Keyword.LLM_QUERY)) {
+            return true;
+        }
+        switch (intent) {
+            case RESET:
+            case TRADER:
+                return true;
+            case FILTER_TRADER:
+                return match.getTrader() != null;
+            case TOP_PERFORMER:
+            case WHO_TRADES:
+            case LIST_TRADERS:
+            case VOLUME:
+                return LocalQueryEngine.getInstance().canAnswer(match); // exact answers from the trade data
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return false if the breaker is open - answer locally without calling upstream
+     */
+    boolean allowUpstream() {
+        return breaker.allowRequest();
+    }
+
+    /**
+     * Hands back an allowUpstream() permission that was not used.
+     */
+    void releaseUpstream() {
+        breaker.releaseProbe();
+    }
+
+    /**
+     * Calls upstream within budgetMillis. The returned future completes with the LLM answer, or
+     * with fallback's answer on timeout, error or an open breaker - never later than the budget.
+     * A response arriving after the budget is dropped here; attach to the upstream future to keep it.
+     */
+    CompletableFuture<String> call(Supplier<CompletableFuture<String>> upstream, long budgetMillis,
+                                   final Supplier<String> fallback) {
+        final long start = System.nanoTime();
+        if (!breaker.allowRequest()) {
+            String response = fallback.get();
+            record(Route.FALLBACK, start);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!result.isDone()) {
+                    timeouts.incrementAndGet();
+                    breaker.recordFailure();
+                    completeWithFallback(result, fallback, start);
+                }
+            }
+        }, budgetMillis, TimeUnit.MILLISECONDS);
+
+        upstream.get().whenComplete(new BiConsumer<String, Throwable>() {
+            @Override
+            public void accept(String response, Throwable error) {
+                timeout.cancel(false);
+                if (result.isDone()) {
+                    lateResponses.incrementAndGet(); // already answered by the fallback
+                    return;
+                }
+                if (error == null) {
+                    breaker.recordSuccess();
+                    if (result.complete(response)) {
+                        record(Route.LLM, start);
+                    }
+                    return;
+                }
+
+                System.out.println("❌ LLM call failed: " + recordError(error).getMessage());
+                completeWithFallback(result, fallback, start);
+            }
+        });
+        return result;
+    }
+
+    CompletableFuture<String> call(Supplier<CompletableFuture<String>> upstream, Supplier<String> fallback) {
+        return call(upstream, budgetMillis, fallback);
+    }
+
+    private void completeWithFallback(CompletableFuture<String> result, Supplier<String> fallback, long start) {
+        String response;
+        try {
+            response = fallback.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        if (result.complete(response)) {
+            record(Route.FALLBACK, start);
+        }
+    }
+
+    /**
+     * Reports how a call that bypassed call() went upstream, e.g. a streamed answer.
+     */
+    void recordUpstream(long startNanos, Throwable error) {
+        if (error == null) {
+            breaker.recordSuccess();
+            record(Route.LLM, startNanos);
+            return;
+        }
+        recordError(error);
+        record(Route.FALLBACK, startNanos);
+    }
+
+    /**
+     * @return the underlying cause of error
+     */
+    private Throwable recordError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            busy.incrementAndGet(); // our own in-flight limit, not an upstream failure
+            breaker.releaseProbe();
+        } else {
+            errors.incrementAndGet();
+            breaker.recordFailure();
+        }
+        return cause;
+    }
+
+    void record(Route route, long startNanos) {
+        latencies.get(route).add(System.nanoTime() - startNanos);
+    }
+
+    long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    CircuitBreaker.State getBreakerState() {
+        return breaker.getState();
+    }
+
+    String getStats() {
+        StringBuilder stats = new StringBuilder(256);
+        stats.append("LLM router: budget ").append(budgetMillis).append("ms | ").append(breaker.getStats());
+        for (Route route : Route.values()) {
+            stats.append(" | ").append(route.name().toLowerCase()).append(' ').append(latencies.get(route));
+        }
+        return stats.append(String.format(" | timeouts %d | errors %d | busy %d | late %d",
+            timeouts.get(), errors.get(), busy.get(), lateResponses.get())).toString();
+    }
+
+    /**
+     * Call count, mean and max latency of one route.
+     */
+    private static final class LatencyStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void add(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+        }
+
+        @Override
+        public String toString() {
+            long n = count.get();
+            return String.format("%d (avg %.1fms, max %.1fms)", n,
+                n == 0 ? 0.0 : totalNanos.get() / 1e6 / n, maxNanos.get() / 1e6);
+        }
+    }
+}
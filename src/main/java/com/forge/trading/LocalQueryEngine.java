@@ -0,0 +1,287 @@
+package com.forge.trading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers the common analytic chat questions straight from the TradeStore.
+ *
+ * A recognised intent is mapped to a small plan - optional filter on one column, group-by on
+ * another, ordered by a measure and cut to the top K - which is evaluated in one pass over the
+ * dictionary-encoded columns with per-group accumulators indexed by code. The result is
+ * formatted into the same JSON the LLM returns, so answers are always current and exact.
+ */
+final class LocalQueryEngine {
+
+    enum Dimension { TRADER, SYMBOL, DESK }
+
+    enum Measure { PNL, TRADES, VOLUME }
+
+    private static final LocalQueryEngine INSTANCE = new LocalQueryEngine(TradeStore.getInstance());
+
+    private final TradeStore store;
+
+    LocalQueryEngine(TradeStore store) {
+        this.store = store;
+    }
+
+    static LocalQueryEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if match is a question answer() can plan and there is data to answer it from
+     */
+    boolean canAnswer(IntentMatcher.Match match) {
+        if (store.size() == 0) {
+            return false;
+        }
+        switch (match.getIntent()) {
+            case TOP_PERFORMER:
+            case LIST_TRADERS:
+            case VOLUME:
+                return true;
+            case WHO_TRADES:
+                return store.getSymbols().lookup(match.getSymbol()) >= 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Plans, runs and formats the answer to match. The trader the answer offers to filter to
+     * is remembered in state, as the demo responses do.
+     *
+     * @return the response JSON, or null if canAnswer(match) is false
+     */
+    String answer(IntentMatcher.Match match, ChatSessionStore.SessionState state) {
+        if (!canAnswer(match)) {
+            return null;
+        }
+        switch (match.getIntent()) {
+            case TOP_PERFORMER:
+                return answerTopPerformer(state);
+            case WHO_TRADES:
+                return answerWhoTrades(match.getSymbol(), state);
+            case LIST_TRADERS:
+                return answerListTraders();
+            default:
+                return answerVolume();
+        }
+    }
+
+    private String answerTopPerformer(ChatSessionStore.SessionState state) {
+        List<Row> top = execute(new Query(null, null, Dimension.TRADER, Measure.PNL, 1));
+        if (top.isEmpty()) {
+            return null;
+        }
+        Row best = top.get(0);
+        List<Row> symbols = execute(new Query(Dimension.TRADER, best.key, Dimension.SYMBOL, Measure.TRADES, 1));
+        state.suggest(best.key);
+        return response("🏆 " + escapeJson(best.key) + " is currently our top performer with " + money(best.pnl) + " P&L across "
+            + best.trades + " trades (" + best.getWinRate() + "% win rate)"
+            + (symbols.isEmpty() ? "" : ", most active in " + escapeJson(symbols.get(0).key)) + "."
+            + "\\n\\nWould you like me to filter the dashboard to show " + escapeJson(possessive(best.key)) + " detailed performance?");
+    }
+
+    private String answerWhoTrades(String symbol, ChatSessionStore.SessionState state) {
+        List<Row> traders = execute(new Query(Dimension.SYMBOL, symbol, Dimension.TRADER, Measure.TRADES, 0));
+        if (traders.isEmpty()) {
+            return response("📊 Nobody has traded " + escapeJson(symbol) + " yet.");
+        }
+        StringBuilder message = new StringBuilder(64 + traders.size() * 64);
+        message.append("⚡ <strong>").append(escapeJson(symbol)).append(" Traders:</strong><br><br>");
+        for (Row row : traders) {
+            message.append("<strong>").append(escapeJson(row.key)).append("</strong> - ").append(row.trades)
+                .append(row.trades == 1 ? " trade, " : " trades, ").append(money(row.pnl)).append(" P&L<br>");
+        }
+        String busiest = traders.get(0).key;
+        state.suggest(busiest);
+        return response(message.append("<br>Want to see ").append(escapeJson(possessive(busiest))).append(" performance?").toString());
+    }
+
+    private String answerListTraders() {
+        List<Row> traders = execute(new Query(null, null, Dimension.TRADER, Measure.PNL, 0));
+        StringBuilder message = new StringBuilder(64 + traders.size() * 64);
+        message.append("📋 <strong>Traders by P&L:</strong><br><br>");
+        for (int i = 0; i < traders.size(); i++) {
+            Row row = traders.get(i);
+            message.append(i + 1).append(". <strong>").append(escapeJson(row.key)).append("</strong>: ").append(money(row.pnl))
+                .append(" (").append(row.trades).append(" trades, ").append(row.getWinRate()).append("% win)<br>");
+        }
+        return response(message.toString());
+    }
+
+    private String answerVolume() {
+        List<Row> traders = execute(new Query(null, null, Dimension.TRADER, Measure.VOLUME, 3));
+        List<Row> symbols = execute(new Query(null, null, Dimension.SYMBOL, Measure.VOLUME, 3));
+        StringBuilder message = new StringBuilder(256);
+        message.append("📊 <strong>Volume leaders:</strong><br><br>");
+        for (Row row : traders) {
+            message.append("<strong>").append(escapeJson(row.key)).append("</strong> - ")
+                .append(String.format("%,d", row.volume)).append(" shares in ").append(row.trades).append(" trades<br>");
+        }
+        message.append("<br>Most traded symbols: ");
+        for (int i = 0; i < symbols.size(); i++) {
+            Row row = symbols.get(i);
+            message.append(i > 0 ? ", " : "").append(escapeJson(row.key)).append(" (").append(String.format("%,d", row.volume)).append(')');
+        }
+        return response(message.toString());
+    }
+
+    /**
+     * Runs query in a single pass over the rows present when it starts.
+     *
+     * @return groups with at least one matching trade, best first by the query's measure
+     */
+    List<Row> execute(Query query) {
+        TradeStore.Dictionary groups = dictionary(query.groupBy);
+        int groupCount = groups.size();
+        int filterCode = -1;
+        if (query.filterBy != null) {
+            filterCode = dictionary(query.filterBy).lookup(query.filterValue);
+            if (filterCode < 0) {
+                return new ArrayList<>(0);
+            }
+        }
+
+        double[] pnl = new double[groupCount];
+        int[] trades = new int[groupCount];
+        int[] wins = new int[groupCount];
+        long[] volume = new long[groupCount];
+        int rows = store.size();
+        for (int row = 0; row < rows; row++) {
+            if (filterCode >= 0 && code(query.filterBy, row) != filterCode) {
+                continue;
+            }
+            int group = code(query.groupBy, row);
+            if (group >= groupCount) {
+                continue; // value first seen after the scan started
+            }
+            double tradePnl = store.getPnl(row);
+            pnl[group] += tradePnl;
+            trades[group]++;
+            if (tradePnl > 0) {
+                wins[group]++;
+            }
+            volume[group] += store.getVolume(row);
+        }
+
+        // Top-K by insertion into a list kept sorted - K is small, groups are few
+        int limit = query.limit > 0 ? query.limit : groupCount;
+        List<Row> result = new ArrayList<>(Math.min(limit, groupCount));
+        for (int group = 0; group < groupCount; group++) {
+            if (trades[group] == 0) {
+                continue;
+            }
+            Row row = new Row(groups.decode(group), pnl[group], trades[group], wins[group], volume[group]);
+            int at = result.size();
+            while (at > 0 && row.measure(query.orderBy) > result.get(at - 1).measure(query.orderBy)) {
+                at--;
+            }
+            if (at < limit) {
+                result.add(at, row);
+                if (result.size() > limit) {
+                    result.remove(limit);
+                }
+            }
+        }
+        return result;
+    }
+
+    private TradeStore.Dictionary dictionary(Dimension dimension) {
+        switch (dimension) {
+            case TRADER:
+                return store.getTraders();
+            case SYMBOL:
+                return store.getSymbols();
+            default:
+                return store.getDesks();
+        }
+    }
+
+    private int code(Dimension dimension, int row) {
+        switch (dimension) {
+            case TRADER:
+                return store.getTraderCode(row);
+            case SYMBOL:
+                return store.getSymbolCode(row);
+            default:
+                return store.getDeskCode(row);
+        }
+    }
+
+    private static String response(String message) {
+        return "{\n" +
+               "  \"message\": \"" + message + "\"\n" +
+               "}";
+    }
+
+    private static String money(double value) {
+        return (value < 0 ? "-$" : "+$") + String.format("%,.0f", Math.abs(value));
+    }
+
+    private static String possessive(String trader) {
+        return trader + (trader.endsWith("s") ? "'" : "'s");
+    }
+
+    /**
+     * Trader and symbol names come from the trades table, so they are escaped before going into the JSON.
+     */
+    private static String escapeJson(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
+    }
+
+    /**
+     * WHERE filterBy = filterValue GROUP BY groupBy ORDER BY orderBy DESC LIMIT limit (0 for all).
+     */
+    static final class Query {
+        final Dimension filterBy;
+        final String filterValue;
+        final Dimension groupBy;
+        final Measure orderBy;
+        final int limit;
+
+        Query(Dimension filterBy, String filterValue, Dimension groupBy, Measure orderBy, int limit) {
+            this.filterBy = filterBy;
+            this.filterValue = filterValue;
+            this.groupBy = groupBy;
+            this.orderBy = orderBy;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * One group of a query result.
+     */
+    static final class Row {
+        final String key;
+        final double pnl;
+        final int trades;
+        final int wins;
+        final long volume;
+
+        Row(String key, double pnl, int trades, int wins, long volume) {
+            this.key = key;
+            this.pnl = pnl;
+            this.trades = trades;
+            this.wins = wins;
+            this.volume = volume;
+        }
+
+        long getWinRate() {
+            return Math.round(wins * 100.0 / trades);
+        }
+
+        double measure(Measure measure) {
+            switch (measure) {
+                case PNL:
+                    return pnl;
+                case TRADES:
+                    return trades;
+                default:
+                    return volume;
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.forge.trading;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.f1.ami.amicommon.customobjects.AmiScriptAccessible;
+
+/**
+ * A set of panel mutations (HTML values, datamodel re-processing, refreshes) collected
+ * from AMI script and applied in one call by PanelManager.applyBatch.
+ *
+ * Nothing is repainted until commit. HTML is then staged through the panel's template
+ * setter, which takes effect on the next refresh, and each touched layout is refreshed once
+ * at the end. Datamodels are re-processed once each and repaint their own panels when the
+ * data arrives. Superseded mutations are dropped: the last value written to a panel (per key)
+ * and the last params for a datamodel win.
+ *
+ * This is not a transaction - mutations already applied stay applied when a later one fails.
+ */
+@AmiScriptAccessible(name = "PanelBatch")
+public class PanelBatch {
+
+    // Insertion-ordered per layout; layouts compared by identity
+    private final Map<Object, LayoutMutations> layouts = new IdentityHashMap<>();
+    private final List<Object> layoutOrder = new ArrayList<>();
+
+    @AmiScriptAccessible
+    public PanelBatch() {
+        // Empty batch
+    }
+
+    /**
+     * Sets an HTML panel's content at commit (setHtmlTemplate/setTemplate/setValue, whichever the panel has).
+     */
+    @AmiScriptAccessible(name = "setHtml", params = { "layout", "panelId", "html" })
+    public PanelBatch setHtml(Object layout, String panelId, String html) {
+        LayoutMutations mutations = mutationsFor(layout);
+        mutations.html.put(panelId, new String[] { panelId, null, html });
+        mutations.refreshPanels.add(panelId);
+        return this;
+    }
+
+    /**
+     * Sets a named value on a panel at commit, e.g. setValue(layout, "Html1", "htmlTemplate2", html).
+     */
+    @AmiScriptAccessible(name = "setValue", params = { "layout", "panelId", "key", "value" })
+    public PanelBatch setValue(Object layout, String panelId, String key, String value) {
+        LayoutMutations mutations = mutationsFor(layout);
+        mutations.html.put(panelId + '|' + key, new String[] { panelId, key, value });
+        mutations.refreshPanels.add(panelId);
+        return this;
+    }
+
+    @AmiScriptAccessible(name = "processDatamodel", params = { "layout", "datamodel", "params" })
+    public PanelBatch processDatamodel(Object layout, String datamodel, Map<?, ?> params) {
+        mutationsFor(layout).datamodels.put(datamodel, params);
+        return this;
+    }
+
+    /**
+     * Adds a panel to the refresh at commit, for panels changed outside the batch.
+     */
+    @AmiScriptAccessible(name = "refreshPanel", params = { "layout", "panelId" })
+    public PanelBatch refreshPanel(Object layout, String panelId) {
+        mutationsFor(layout).refreshPanels.add(panelId);
+        return this;
+    }
+
+    @AmiScriptAccessible(name = "size")
+    public int size() {
+        int count = 0;
+        for (LayoutMutations mutations : layouts.values()) {
+            count += mutations.html.size() + mutations.datamodels.size();
+        }
+        return count;
+    }
+
+    /**
+     * Applies every mutation - shorthand for PanelManager.applyBatch(this).
+     */
+    @AmiScriptAccessible(name = "commit")
+    public String commit() {
+        return PanelManager.applyBatch(this);
+    }
+
+    private LayoutMutations mutationsFor(Object layout) {
+        LayoutMutations mutations = layouts.get(layout);
+        if (mutations == null) {
+            mutations = new LayoutMutations();
+            layouts.put(layout, mutations);
+            layoutOrder.add(layout);
+        }
+        return mutations;
+    }
+
+    List<Object> getLayouts() {
+        return layoutOrder;
+    }
+
+    LayoutMutations getMutations(Object layout) {
+        return layouts.get(layout);
+    }
+
+    void clear() {
+        layouts.clear();
+        layoutOrder.clear();
+    }
+
+    /**
+     * Mutations for one layout. html maps panelId (setHtml) or panelId|key (setValue) to
+     * {panelId, key, value}; key null means plain setHtml. refreshPanels holds every panel
+     * written by the batch as well as those passed to refreshPanel.
+     */
+    static class LayoutMutations {
+        final Map<String, String[]> html = new LinkedHashMap<>();
+        final Map<String, Map<?, ?>> datamodels = new LinkedHashMap<>();
+        final Set<String> refreshPanels = new LinkedHashSet<>();
+    }
+}
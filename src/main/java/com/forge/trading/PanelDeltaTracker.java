@@ -0,0 +1,54 @@
+package com.forge.trading;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the last HTML rendered into each HTML panel so an update that would render
+ * exactly the same cards can skip the setHtml round trip to the browser.
+ *
+ * A changed card is always re-rendered in full: the panel has no way to patch single values
+ * in place. The cache hands out the same String for an unchanged entry, so the usual check
+ * is a reference comparison.
+ *
+ * State is keyed by layout (weakly, so closed sessions are dropped) and panel id.
+ * A panel with no remembered state is always rendered; anything else that rewrites the
+ * panel's HTML must call forget() so a stale entry never suppresses a needed render.
+ */
+class PanelDeltaTracker {
+
+    private final Map<Object, Map<String, String>> lastHtml = new WeakHashMap<>();
+
+    /**
+     * @return true if the panel is known to already show exactly html
+     */
+    synchronized boolean isCurrent(Object layout, String panelId, String html) {
+        Map<String, String> panels = lastHtml.get(layout);
+        String previous = panels != null ? panels.get(panelId) : null;
+        return previous != null && previous.equals(html);
+    }
+
+    /**
+     * Records html as what the panel now shows, after a successful render.
+     */
+    synchronized void commit(Object layout, String panelId, String html) {
+        Map<String, String> panels = lastHtml.get(layout);
+        if (panels == null) {
+            panels = new HashMap<>();
+            lastHtml.put(layout, panels);
+        }
+        panels.put(panelId, html);
+    }
+
+    synchronized void forget(Object layout, String panelId) {
+        Map<String, String> panels = lastHtml.get(layout);
+        if (panels != null) {
+            panels.remove(panelId);
+        }
+    }
+
+    synchronized void forget(Object layout) {
+        lastHtml.remove(layout);
+    }
+}
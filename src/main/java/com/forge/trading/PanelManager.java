@@ -19,8 +19,7 @@ public class PanelManager {
     public static boolean updateHtmlPanel(String panelId, String htmlContent, Object layout) {
         try {
             // Get the panel from layout
-            Method getPanel = layout.getClass().getMethod("getPanel", String.class);
-            Object panel = getPanel.invoke(layout, panelId);
+            Object panel = ReflectiveDispatch.getPanel(layout, panelId);
             
             if (panel == null) {
                 System.err.println("Panel not found: " + panelId);
@@ -28,8 +27,12 @@ public class PanelManager {
             }
             
             // Try to update the panel's HTML content
-            // This uses reflection to call panel.setValue() or similar method
-            Method setValue = panel.getClass().getMethod("setValue", String.class);
+            // This uses a cached method handle for panel.setValue()
+            ReflectiveDispatch.Binding setValue = ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_VALUE);
+            if (setValue == null) {
+                System.err.println("Panel has no setValue(String): " + panelId);
+                return false;
+            }
             setValue.invoke(panel, htmlContent);
             
             System.out.println("Successfully updated HTML panel: " + panelId);
@@ -48,30 +51,21 @@ public class PanelManager {
     @AmiScriptAccessible(name = "setHtmlTemplate")
     public static boolean setHtmlTemplate(String panelId, String htmlContent, Object layout) {
         try {
-            Method getPanel = layout.getClass().getMethod("getPanel", String.class);
-            Object panel = getPanel.invoke(layout, panelId);
+            Object panel = ReflectiveDispatch.getPanel(layout, panelId);
             
             if (panel == null) {
                 System.err.println("Panel not found: " + panelId);
                 return false;
             }
             
-            // Try different methods to set HTML content
-            try {
-                Method setHtmlTemplate = panel.getClass().getMethod("setHtmlTemplate", String.class);
-                setHtmlTemplate.invoke(panel, htmlContent);
-                return true;
-            } catch (NoSuchMethodException e1) {
-                try {
-                    Method setTemplate = panel.getClass().getMethod("setTemplate", String.class);
-                    setTemplate.invoke(panel, htmlContent);
-                    return true;
-                } catch (NoSuchMethodException e2) {
-                    Method setValue = panel.getClass().getMethod("setValue", String.class);
-                    setValue.invoke(panel, htmlContent);
-                    return true;
-                }
+            // Resolved once per panel class: setHtmlTemplate, then setTemplate, then setValue
+            ReflectiveDispatch.Binding setTemplate = ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_TEMPLATE);
+            if (setTemplate == null) {
+                System.err.println("Panel has no template setter: " + panelId);
+                return false;
             }
+            setTemplate.invoke(panel, htmlContent);
+            return true;
             
         } catch (Exception e) {
             System.err.println("Error setting HTML template for panel '" + panelId + "': " + e.getMessage());
@@ -85,8 +79,7 @@ public class PanelManager {
     @AmiScriptAccessible(name = "refreshPanel")
     public static boolean refreshPanel(String panelId, Object layout) {
         try {
-            Method getPanel = layout.getClass().getMethod("getPanel", String.class);
-            Object panel = getPanel.invoke(layout, panelId);
+            Object panel = ReflectiveDispatch.getPanel(layout, panelId);
             
             if (panel == null) {
                 System.err.println("Panel not found: " + panelId);
@@ -94,7 +87,11 @@ public class PanelManager {
             }
             
             // Try to refresh the panel
-            Method refresh = panel.getClass().getMethod("refresh");
+            ReflectiveDispatch.Binding refresh = ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.REFRESH);
+            if (refresh == null) {
+                System.err.println("Panel has no refresh(): " + panelId);
+                return false;
+            }
             refresh.invoke(panel);
             
             return true;
@@ -111,8 +108,7 @@ public class PanelManager {
     @AmiScriptAccessible(name = "getPanelInfo")
     public static String getPanelInfo(String panelId, Object layout) {
         try {
-            Method getPanel = layout.getClass().getMethod("getPanel", String.class);
-            Object panel = getPanel.invoke(layout, panelId);
+            Object panel = ReflectiveDispatch.getPanel(layout, panelId);
             
             if (panel == null) {
                 return "Panel not found: " + panelId;
@@ -146,7 +142,11 @@ public class PanelManager {
         try {
             // This would depend on the specific 3forge Layout API
             // For now, we'll try a generic approach
-            Method refresh = layout.getClass().getMethod("refresh");
+            ReflectiveDispatch.Binding refresh = ReflectiveDispatch.bind(layout, ReflectiveDispatch.Op.REFRESH);
+            if (refresh == null) {
+                System.err.println("Layout has no refresh(): " + layout.getClass().getSimpleName());
+                return false;
+            }
             refresh.invoke(layout);
             
             return true;
@@ -156,4 +156,135 @@ public class PanelManager {
             return false;
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Starts an empty batch of panel mutations - see applyBatch
+     */
+    @AmiScriptAccessible(name = "beginBatch")
+    public static PanelBatch beginBatch() {
+        return new PanelBatch();
+    }
+    
+    /**
+     * Applies a batch of panel mutations one layout at a time: datamodels are re-processed,
+     * HTML is staged without a repaint, then the layout is refreshed once if it supports
+     * refresh(), otherwise each touched panel once. Mutations already applied stay applied
+     * when a later one fails.
+     */
+    @AmiScriptAccessible(name = "applyBatch")
+    public static String applyBatch(PanelBatch batch) {
+        int applied = 0;
+        int refreshes = 0;
+        int failed = 0;
+        
+        for (Object layout : batch.getLayouts()) {
+            PanelBatch.LayoutMutations mutations = batch.getMutations(layout);
+            
+            // Started first so the queries run while the HTML is staged
+            for (java.util.Map.Entry<String, java.util.Map<?, ?>> entry : mutations.datamodels.entrySet()) {
+                if (processDatamodel(layout, entry.getKey(), entry.getValue())) {
+                    applied++;
+                } else {
+                    failed++;
+                }
+            }
+            
+            for (java.util.Map.Entry<String, String[]> entry : mutations.html.entrySet()) {
+                String[] html = entry.getValue();
+                if (stageHtml(layout, html[0], html[1], html[2])) {
+                    applied++;
+                } else {
+                    failed++;
+                }
+            }
+            
+            if (!mutations.refreshPanels.isEmpty()) {
+                if (refreshOnce(layout, mutations.refreshPanels)) {
+                    refreshes++;
+                } else {
+                    failed++;
+                }
+            }
+        }
+        
+        int layouts = batch.getLayouts().size();
+        batch.clear();
+        return "Batch applied: " + applied + " mutations, " + refreshes + " refresh(es), " + failed + " failed, " + layouts + " layout(s)";
+    }
+    
+    /**
+     * Writes html through the panel's template setter (or the keyed setValue), which is only
+     * rendered on the panel's next refresh - see refreshOnce.
+     */
+    private static boolean stageHtml(Object layout, String panelId, String key, String html) {
+        try {
+            Object panel = ReflectiveDispatch.getPanel(layout, panelId);
+            if (panel == null) {
+                System.err.println("Panel not found: " + panelId);
+                return false;
+            }
+            
+            ReflectiveDispatch.Binding setter = key != null
+                ? ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_KEYED_VALUE)
+                : ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_TEMPLATE);
+            if (setter == null) {
+                System.err.println("Panel has no HTML setter: " + panelId);
+                return false;
+            }
+            
+            if (key != null) {
+                setter.invoke(panel, key, html);
+            } else {
+                setter.invoke(panel, html);
+            }
+            return true;
+            
+        } catch (Exception e) {
+            System.err.println("Error setting HTML for panel '" + panelId + "': " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static boolean processDatamodel(Object layout, String datamodelName, java.util.Map<?, ?> params) {
+        try {
+            ReflectiveDispatch.Binding getDatamodel = ReflectiveDispatch.bind(layout, ReflectiveDispatch.Op.GET_DATAMODEL);
+            Object datamodel = getDatamodel != null ? getDatamodel.invoke(layout, datamodelName) : null;
+            if (datamodel == null) {
+                System.err.println("Datamodel not found: " + datamodelName);
+                return false;
+            }
+            
+            ReflectiveDispatch.Binding process = ReflectiveDispatch.bind(datamodel, ReflectiveDispatch.Op.PROCESS);
+            if (process == null) {
+                System.err.println("Datamodel has no process(Map): " + datamodelName);
+                return false;
+            }
+            process.invoke(datamodel, params);
+            return true;
+            
+        } catch (Exception e) {
+            System.err.println("Error processing datamodel '" + datamodelName + "': " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static boolean refreshOnce(Object layout, java.util.Set<String> panelIds) {
+        try {
+            ReflectiveDispatch.Binding refreshLayout = ReflectiveDispatch.bind(layout, ReflectiveDispatch.Op.REFRESH);
+            if (refreshLayout != null) {
+                refreshLayout.invoke(layout);
+                return true;
+            }
+            
+            boolean ok = true;
+            for (String panelId : panelIds) {
+                ok &= refreshPanel(panelId, layout);
+            }
+            return ok;
+            
+        } catch (Exception e) {
+            System.err.println("Error refreshing layout: " + e.getMessage());
+            return false;
+        }
+    }
+}
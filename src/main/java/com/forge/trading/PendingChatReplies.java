@@ -0,0 +1,100 @@
+package com.forge.trading;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Chat answers still being computed by the LLM pool, by pending id.
+ *
+ * The pool threads only complete the future; nothing there touches a layout. The AMI script
+ * takes the finished answer by id on its own session thread and renders it there. A streamed
+ * answer also keeps the text received so far, for the script to render while it polls. Ids the
+ * script never comes back for are dropped oldest first once maxPending are outstanding.
+ */
+class PendingChatReplies {
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<String, Reply> replies;
+
+    PendingChatReplies(final int maxPending) {
+        this.replies = new LinkedHashMap<String, Reply>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Reply> eldest) {
+                return size() > maxPending;
+            }
+        };
+    }
+
+    /**
+     * @param streamed set by the stream listener to the text received so far, or null if not streaming
+     * @return the id the script takes the answer with
+     */
+    String add(Object userMessage, Object session, CompletableFuture<String> response, AtomicReference<String> streamed) {
+        String id = "chat-" + nextId.incrementAndGet();
+        synchronized (replies) {
+            replies.put(id, new Reply(userMessage, session, response, streamed));
+        }
+        return id;
+    }
+
+    /**
+     * @return the reply, or null if id is unknown or was already taken
+     */
+    Reply get(String id) {
+        synchronized (replies) {
+            return replies.get(id);
+        }
+    }
+
+    /**
+     * Removes the reply once its answer is done.
+     *
+     * @return the finished reply, or null if id is unknown, taken or still being answered
+     */
+    Reply takeDone(String id) {
+        synchronized (replies) {
+            Reply reply = replies.get(id);
+            if (reply == null || !reply.response.isDone()) {
+                return null;
+            }
+            replies.remove(id);
+            return reply;
+        }
+    }
+
+    void clear() {
+        synchronized (replies) {
+            replies.clear();
+        }
+    }
+
+    int size() {
+        synchronized (replies) {
+            return replies.size();
+        }
+    }
+
+    static final class Reply {
+        final Object userMessage;
+        final Object session;
+        final CompletableFuture<String> response;
+        private final AtomicReference<String> streamed;
+
+        Reply(Object userMessage, Object session, CompletableFuture<String> response, AtomicReference<String> streamed) {
+            this.userMessage = userMessage;
+            this.session = session;
+            this.response = response;
+            this.streamed = streamed;
+        }
+
+        /**
+         * @return the text streamed so far if more arrived since the last call, otherwise null
+         */
+        String takeStreamed() {
+            return streamed != null ? streamed.getAndSet(null) : null;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.forge.trading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Pre-aggregated P&L and volume by trader x symbol x time bucket.
+ *
+ * Each trade is folded into one cell per resolution (minute, hour, day): sum, count, min and
+ * max of pnl and of volume. A chart query then merges cells - O(buckets x cells per bucket) -
+ * instead of grouping the trades table. Minute and hour buckets are kept for a bounded window
+ * behind the latest trade; day buckets are kept for good, so whole-history totals stay exact.
+ */
+class PnlCube implements TradeStore.Listener {
+
+    enum Resolution {
+        MINUTE(60 * 1000L, 24 * 60),          // last day
+        HOUR(60 * 60 * 1000L, 30 * 24),       // last 30 days
+        DAY(24 * 60 * 60 * 1000L, Integer.MAX_VALUE);
+
+        final long millis;
+        final int retainedBuckets;
+
+        Resolution(long millis, int retainedBuckets) {
+            this.millis = millis;
+            this.retainedBuckets = retainedBuckets;
+        }
+
+        /**
+         * @return the resolution named by name (DAY if empty), or null if there is none
+         */
+        static Resolution parse(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return DAY;
+            }
+            for (Resolution resolution : values()) {
+                if (resolution.name().equalsIgnoreCase(name.trim())) {
+                    return resolution;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final TradeStore store;
+    private final Map<Resolution, TreeMap<Long, Slice>> buckets = new EnumMap<>(Resolution.class);
+
+    PnlCube(TradeStore store) {
+        this.store = store;
+        for (Resolution resolution : Resolution.values()) {
+            buckets.put(resolution, new TreeMap<Long, Slice>());
+        }
+        store.addListener(this);
+    }
+
+    @Override
+    public synchronized void onTrade(TradeStore store, int row) {
+        long timestamp = store.getTimestamp(row);
+        int trader = store.getTraderCode(row);
+        int symbol = store.getSymbolCode(row);
+        double pnl = store.getPnl(row);
+        long volume = store.getVolume(row);
+
+        for (Resolution resolution : Resolution.values()) {
+            TreeMap<Long, Slice> slices = buckets.get(resolution);
+            long bucket = Math.floorDiv(timestamp, resolution.millis) * resolution.millis;
+            Slice slice = slices.get(bucket);
+            if (slice == null) {
+                slice = new Slice();
+                slices.put(bucket, slice);
+                // Drop buckets that fell out of the window behind the newest one
+                long oldest = slices.lastKey() - (resolution.retainedBuckets - 1L) * resolution.millis;
+                while (resolution.retainedBuckets != Integer.MAX_VALUE && slices.firstKey() < oldest) {
+                    slices.pollFirstEntry();
+                }
+            }
+            slice.cell(trader, symbol).add(pnl, volume);
+        }
+    }
+
+    @Override
+    public synchronized void onClear(TradeStore store) {
+        for (TreeMap<Long, Slice> slices : buckets.values()) {
+            slices.clear();
+        }
+    }
+
+    /**
+     * Merges every cell in [fromMillis, toMillis) at resolution matching the filters into one
+     * row per group.
+     *
+     * @param trader only this trader, or null for all
+     * @param symbol only this symbol, or null for all
+     * @return rows in bucket, then trader, then symbol dictionary order
+     */
+    synchronized List<Row> query(Resolution resolution, long fromMillis, long toMillis, String trader, String symbol,
+                                 boolean byTrader, boolean bySymbol, boolean byBucket) {
+        int traderFilter = trader != null ? store.getTraders().lookup(trader) : -1;
+        int symbolFilter = symbol != null ? store.getSymbols().lookup(symbol) : -1;
+        List<Row> rows = new ArrayList<>();
+        if ((trader != null && traderFilter < 0) || (symbol != null && symbolFilter < 0) || fromMillis >= toMillis) {
+            return rows;
+        }
+
+        // Start from the bucket containing fromMillis (no rounding at the bottom of the range - it would overflow)
+        long from = fromMillis - resolution.millis < fromMillis
+            ? Math.floorDiv(fromMillis, resolution.millis) * resolution.millis : Long.MIN_VALUE;
+        NavigableMap<Long, Slice> range = buckets.get(resolution).subMap(from, true, toMillis, false);
+        // Groups of the current bucket (or of the whole range), keyed by trader and symbol code
+        Map<Long, Row> groups = new TreeMap<>();
+        for (Map.Entry<Long, Slice> entry : range.entrySet()) {
+            Cell[][] cells = entry.getValue().cells;
+            for (int t = 0; t < cells.length; t++) {
+                if (cells[t] == null || (traderFilter >= 0 && t != traderFilter)) {
+                    continue;
+                }
+                for (int s = 0; s < cells[t].length; s++) {
+                    Cell cell = cells[t][s];
+                    if (cell == null || (symbolFilter >= 0 && s != symbolFilter)) {
+                        continue;
+                    }
+                    long key = ((long) (byTrader ? t : 0) << 32) | (bySymbol ? s : 0);
+                    Row row = groups.get(key);
+                    if (row == null) {
+                        row = new Row(byBucket ? entry.getKey() : -1,
+                            byTrader ? store.getTraders().decode(t) : null,
+                            bySymbol ? store.getSymbols().decode(s) : null);
+                        groups.put(key, row);
+                    }
+                    row.merge(cell);
+                }
+            }
+            if (byBucket) {
+                rows.addAll(groups.values());
+                groups.clear();
+            }
+        }
+        rows.addAll(groups.values());
+        return rows;
+    }
+
+    synchronized int getBucketCount(Resolution resolution) {
+        return buckets.get(resolution).size();
+    }
+
+    /**
+     * Cells of one time bucket, indexed by trader code then symbol code.
+     */
+    private static final class Slice {
+        Cell[][] cells = new Cell[8][];
+
+        Cell cell(int trader, int symbol) {
+            if (trader >= cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length * 2, trader + 1));
+            }
+            Cell[] row = cells[trader];
+            if (row == null) {
+                row = new Cell[Math.max(16, symbol + 1)];
+                cells[trader] = row;
+            } else if (symbol >= row.length) {
+                row = Arrays.copyOf(row, Math.max(row.length * 2, symbol + 1));
+                cells[trader] = row;
+            }
+            Cell cell = row[symbol];
+            if (cell == null) {
+                cell = new Cell();
+                row[symbol] = cell;
+            }
+            return cell;
+        }
+    }
+
+    /**
+     * Measures of one trader x symbol x bucket.
+     */
+    static class Cell {
+        double sumPnl;
+        double minPnl = Double.POSITIVE_INFINITY;
+        double maxPnl = Double.NEGATIVE_INFINITY;
+        int count;
+        long sumVolume;
+        long minVolume = Long.MAX_VALUE;
+        long maxVolume = Long.MIN_VALUE;
+
+        void add(double pnl, long volume) {
+            sumPnl += pnl;
+            minPnl = Math.min(minPnl, pnl);
+            maxPnl = Math.max(maxPnl, pnl);
+            count++;
+            sumVolume += volume;
+            minVolume = Math.min(minVolume, volume);
+            maxVolume = Math.max(maxVolume, volume);
+        }
+
+        void merge(Cell other) {
+            sumPnl += other.sumPnl;
+            minPnl = Math.min(minPnl, other.minPnl);
+            maxPnl = Math.max(maxPnl, other.maxPnl);
+            count += other.count;
+            sumVolume += other.sumVolume;
+            minVolume = Math.min(minVolume, other.minVolume);
+            maxVolume = Math.max(maxVolume, other.maxVolume);
+        }
+    }
+
+    /**
+     * One group of a query result; bucket is -1 and trader/symbol null when not grouped by them.
+     */
+    static final class Row extends Cell {
+        final long bucket;
+        final String trader;
+        final String symbol;
+
+        Row(long bucket, String trader, String symbol) {
+            this.bucket = bucket;
+            this.trader = trader;
+            this.symbol = symbol;
+        }
+
+        /**
+         * Column name to value, in chart column order, for handing to AMI script.
+         */
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (bucket >= 0) {
+                map.put("bucket", bucket);
+            }
+            if (trader != null) {
+                map.put("trader", trader);
+            }
+            if (symbol != null) {
+                map.put("symbol", symbol);
+            }
+            map.put("total_pnl", sumPnl);
+            map.put("trade_count", count);
+            map.put("avg_pnl", count == 0 ? 0.0 : sumPnl / count);
+            map.put("min_pnl", minPnl);
+            map.put("max_pnl", maxPnl);
+            map.put("total_volume", sumVolume);
+            map.put("min_volume", minVolume);
+            map.put("max_volume", maxVolume);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.forge.trading;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Compact, always-current description of the trade data for LLM prompts.
+ *
+ * Every appended trade updates running aggregates in constant time: P&L, trade and win counts
+ * per trader, net quantity and last price per symbol, and per desk the mean and variance of
+ * trade P&L (Welford's online algorithm) for a parametric 95% VaR. The summary text is rendered
+ * once per data version, on first request, and trimmed to a fixed token budget; every LLM call
+ * in between reuses the same string.
+ */
+class PromptContextBuilder implements TradeStore.Listener {
+
+    private static final PromptContextBuilder INSTANCE = new PromptContextBuilder(TradeStore.getInstance(), 400);
+
+    // One-sided 95% quantile of the normal distribution
+    private static final double Z_95 = 1.645;
+
+    // Rough size of a token in English text, for budgeting without a tokenizer
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final TradeStore store;
+    private final int maxChars;
+
+    // Indexed by dictionary code; only written from the store's ingest path
+    private double[] traderPnl = new double[16];
+    private int[] traderTrades = new int[16];
+    private int[] traderWins = new int[16];
+
+    private long[] symbolNetQuantity = new long[16];
+    private double[] symbolLastPrice = new double[16];
+
+    private long[] deskTrades = new long[16];
+    private double[] deskPnl = new double[16];
+    private double[] deskMean = new double[16];
+    private double[] deskM2 = new double[16];
+
+    private double totalPnl;
+    private int totalTrades;
+    private int buyCode = -1;
+
+    private volatile long version;
+    private volatile long renderedVersion = -1;
+    private volatile String summary = "";
+    private int[] traderRanks = new int[0];
+
+    PromptContextBuilder(TradeStore store, int maxTokens) {
+        this.store = store;
+        this.maxChars = maxTokens * CHARS_PER_TOKEN;
+        store.addListener(this);
+    }
+
+    static PromptContextBuilder getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public synchronized void onTrade(TradeStore store, int row) {
+        double pnl = store.getPnl(row);
+        totalPnl += pnl;
+        totalTrades++;
+
+        int trader = store.getTraderCode(row);
+        if (trader >= traderPnl.length) {
+            int capacity = Math.max(traderPnl.length * 2, trader + 1);
+            traderPnl = Arrays.copyOf(traderPnl, capacity);
+            traderTrades = Arrays.copyOf(traderTrades, capacity);
+            traderWins = Arrays.copyOf(traderWins, capacity);
+        }
+        traderPnl[trader] += pnl;
+        traderTrades[trader]++;
+        if (pnl > 0) {
+            traderWins[trader]++;
+        }
+
+        int symbol = store.getSymbolCode(row);
+        if (symbol >= symbolNetQuantity.length) {
+            int capacity = Math.max(symbolNetQuantity.length * 2, symbol + 1);
+            symbolNetQuantity = Arrays.copyOf(symbolNetQuantity, capacity);
+            symbolLastPrice = Arrays.copyOf(symbolLastPrice, capacity);
+        }
+        if (buyCode < 0) {
+            buyCode = store.getSides().lookup("BUY");
+        }
+        long volume = store.getVolume(row);
+        symbolNetQuantity[symbol] += store.getSideCode(row) == buyCode ? volume : -volume;
+        symbolLastPrice[symbol] = store.getPrice(row);
+
+        int desk = store.getDeskCode(row);
+        if (desk >= deskTrades.length) {
+            int capacity = Math.max(deskTrades.length * 2, desk + 1);
+            deskTrades = Arrays.copyOf(deskTrades, capacity);
+            deskPnl = Arrays.copyOf(deskPnl, capacity);
+            deskMean = Arrays.copyOf(deskMean, capacity);
+            deskM2 = Arrays.copyOf(deskM2, capacity);
+        }
+        long n = ++deskTrades[desk];
+        double delta = pnl - deskMean[desk];
+        deskMean[desk] += delta / n;
+        deskM2[desk] += delta * (pnl - deskMean[desk]);
+        deskPnl[desk] += pnl;
+
+        version++;
+    }
+
+    @Override
+    public synchronized void onClear(TradeStore store) {
+        Arrays.fill(traderPnl, 0);
+        Arrays.fill(traderTrades, 0);
+        Arrays.fill(traderWins, 0);
+        Arrays.fill(symbolNetQuantity, 0);
+        Arrays.fill(symbolLastPrice, 0);
+        Arrays.fill(deskTrades, 0);
+        Arrays.fill(deskPnl, 0);
+        Arrays.fill(deskMean, 0);
+        Arrays.fill(deskM2, 0);
+        totalPnl = 0;
+        totalTrades = 0;
+        buyCode = -1;
+        version++;
+    }
+
+    /**
+     * @return the data summary for the current trades, rendered at most once per change
+     */
+    String getSummary() {
+        if (renderedVersion == version) {
+            return summary;
+        }
+        synchronized (this) {
+            if (renderedVersion != version) {
+                summary = render();
+                renderedVersion = version;
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * @return the trader's 1-based rank by P&L as of the last rendered summary, or 0 if unknown
+     */
+    synchronized int getRank(String trader) {
+        getSummary();
+        int code = store.getTraders().lookup(trader);
+        return code >= 0 && code < traderRanks.length ? traderRanks[code] : 0;
+    }
+
+    private String render() {
+        StringBuilder out = new StringBuilder(maxChars + 64);
+        out.append("LIVE DATA: ").append(String.format("%,d", totalTrades)).append(" trades, total P&L ")
+            .append(money(totalPnl)).append('\n');
+
+        // Traders first - the questions are mostly about them
+        final double[] pnl = traderPnl;
+        Integer[] traders = codes(Math.min(store.getTraders().size(), traderPnl.length), traderTrades);
+        Arrays.sort(traders, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(pnl[b], pnl[a]);
+            }
+        });
+        traderRanks = new int[traderPnl.length];
+        for (int i = 0; i < traders.length; i++) {
+            traderRanks[traders[i]] = i + 1;
+        }
+        String[] lines = new String[traders.length];
+        for (int i = 0; i < traders.length; i++) {
+            int code = traders[i];
+            lines[i] = (i + 1) + ". " + store.getTraders().decode(code) + " " + money(pnl[code])
+                + " (" + traderTrades[code] + " trades, " + Math.round(traderWins[code] * 100.0 / traderTrades[code]) + "% win)";
+        }
+        appendSection(out, "Traders by P&L: ", lines);
+
+        // Desk risk: parametric 95% VaR of a single trade's P&L
+        Integer[] desks = codes(Math.min(store.getDesks().size(), deskTrades.length), null);
+        lines = new String[desks.length];
+        int count = 0;
+        for (int code : desks) {
+            long n = deskTrades[code];
+            if (n < 2) {
+                continue;
+            }
+            double sigma = Math.sqrt(deskM2[code] / (n - 1));
+            double var = Math.max(0, Z_95 * sigma - deskMean[code]);
+            lines[count++] = store.getDesks().decode(code) + " VaR95 " + money(var).substring(1) + " per trade (P&L "
+                + money(deskPnl[code]) + ", " + n + " trades)";
+        }
+        appendSection(out, "Desk risk: ", Arrays.copyOf(lines, count));
+
+        // Largest net positions first
+        final long[] quantity = symbolNetQuantity;
+        final double[] price = symbolLastPrice;
+        Integer[] symbols = codes(Math.min(store.getSymbols().size(), symbolNetQuantity.length), null);
+        Arrays.sort(symbols, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(Math.abs(quantity[b] * price[b]), Math.abs(quantity[a] * price[a]));
+            }
+        });
+        lines = new String[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            int code = symbols[i];
+            lines[i] = store.getSymbols().decode(code) + " " + String.format("%+,d", quantity[code])
+                + " @ " + String.format("%.2f", price[code]) + " = " + money(quantity[code] * price[code]);
+        }
+        appendSection(out, "Net exposure: ", lines);
+        return out.toString();
+    }
+
+    /**
+     * Appends as many items as fit the budget, then a count of the ones left out.
+     */
+    private void appendSection(StringBuilder out, String title, String[] items) {
+        if (items.length == 0 || out.length() + title.length() + items[0].length() + 1 > maxChars) {
+            return;
+        }
+        out.append(title);
+        for (int i = 0; i < items.length; i++) {
+            String more = " (+" + (items.length - i) + " more)";
+            boolean last = i == items.length - 1;
+            if (out.length() + items[i].length() + (last ? 1 : more.length() + 3) > maxChars) {
+                out.setLength(out.length() - (i > 0 ? 2 : 0)); // drop the "; " separator
+                out.append(more);
+                break;
+            }
+            out.append(items[i]).append(last ? "" : "; ");
+        }
+        out.append('\n');
+    }
+
+    /**
+     * @return the codes below size, only those with counts[code] > 0 when counts is given
+     */
+    private static Integer[] codes(int size, int[] counts) {
+        Integer[] codes = new Integer[size];
+        int count = 0;
+        for (int code = 0; code < size; code++) {
+            if (counts == null || counts[code] > 0) {
+                codes[count++] = code;
+            }
+        }
+        return Arrays.copyOf(codes, count);
+    }
+
+    private static String money(double value) {
+        return (value < 0 ? "-$" : "+$") + String.format("%,.0f", Math.abs(value));
+    }
+}
@@ -0,0 +1,164 @@
+package com.forge.trading;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached reflective access to 3forge layout, panel and table objects.
+ *
+ * We only see these objects as Object, so every call used to go through getClass().getMethod(...),
+ * often probing several method names and paying for a NoSuchMethodException on each miss.
+ * Here each (runtime class, operation) pair is resolved once to a MethodHandle - or to a cached
+ * "not supported" marker - and every later call is a map lookup plus invokeExact.
+ */
+final class ReflectiveDispatch {
+
+    /**
+     * Operations we perform reflectively, with candidate method names tried in order.
+     */
+    enum Op {
+        GET_PANEL(new Class<?>[] { String.class }, "getPanel"),
+        GET_DATAMODEL(new Class<?>[] { String.class }, "getDatamodel"),
+        SET_KEYED_VALUE(new Class<?>[] { String.class, Object.class }, "setValue"),
+        SET_VALUE(new Class<?>[] { String.class }, "setValue"),
+        SET_HTML(new Class<?>[] { String.class }, "setValue", "setHtml", "setContent"),
+        SET_TEMPLATE(new Class<?>[] { String.class }, "setHtmlTemplate", "setTemplate", "setValue"),
+        REFRESH(new Class<?>[0], "refresh"),
+        PROCESS(new Class<?>[] { java.util.Map.class }, "process"),
+        GET_ROWS_COUNT(new Class<?>[0], "getRowsCount"),
+        GET_VALUE(new Class<?>[] { int.class, String.class }, "getValue"),
+        GET_USERNAME(new Class<?>[0], "getUsername");
+
+        final Class<?>[] parameterTypes;
+        final String[] methodNames;
+
+        Op(Class<?>[] parameterTypes, String... methodNames) {
+            this.parameterTypes = parameterTypes;
+            this.methodNames = methodNames;
+        }
+    }
+
+    // Marker for operations the class does not support
+    private static final Binding UNSUPPORTED = new Binding(null, null);
+
+    private static final ClassValue<ConcurrentHashMap<Op, Binding>> BINDINGS = new ClassValue<ConcurrentHashMap<Op, Binding>>() {
+        @Override
+        protected ConcurrentHashMap<Op, Binding> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private ReflectiveDispatch() {
+    }
+
+    /**
+     * @return the binding for op on target's runtime class, or null if the class has no matching method
+     */
+    static Binding bind(Object target, Op op) {
+        if (target == null) {
+            return null;
+        }
+        ConcurrentHashMap<Op, Binding> bindings = BINDINGS.get(target.getClass());
+        Binding binding = bindings.get(op);
+        if (binding == null) {
+            binding = resolve(target.getClass(), op);
+            Binding existing = bindings.putIfAbsent(op, binding);
+            if (existing != null) {
+                binding = existing;
+            }
+        }
+        return binding == UNSUPPORTED ? null : binding;
+    }
+
+    static boolean supports(Object target, Op op) {
+        return bind(target, op) != null;
+    }
+
+    /**
+     * Convenience for layout.getPanel(panelId); null if unsupported or not found.
+     */
+    static Object getPanel(Object layout, String panelId) throws Exception {
+        Binding getPanel = bind(layout, Op.GET_PANEL);
+        return getPanel != null ? getPanel.invoke(layout, panelId) : null;
+    }
+
+    private static Binding resolve(Class<?> type, Op op) {
+        Method[] methods = type.getMethods();
+        for (String name : op.methodNames) {
+            for (Method method : methods) {
+                if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), op.parameterTypes)) {
+                    MethodHandle handle = unreflect(method);
+                    if (handle != null) {
+                        // Erase to (Object, Object...)Object so callers can use invokeExact
+                        MethodType generic = MethodType.genericMethodType(op.parameterTypes.length + 1);
+                        return new Binding(name, handle.asType(generic));
+                    }
+                }
+            }
+        }
+        return UNSUPPORTED;
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // Public method declared on a non-public implementation class
+            try {
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method);
+            } catch (Exception e2) {
+                System.out.println("Cannot access " + method + ": " + e2.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A resolved method for one (class, operation) pair.
+     */
+    static final class Binding {
+        final String methodName;
+        private final MethodHandle handle;
+
+        Binding(String methodName, MethodHandle handle) {
+            this.methodName = methodName;
+            this.handle = handle;
+        }
+
+        Object invoke(Object target) throws Exception {
+            try {
+                return (Object) handle.invokeExact(target);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        Object invoke(Object target, Object arg) throws Exception {
+            try {
+                return (Object) handle.invokeExact(target, arg);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        Object invoke(Object target, Object arg1, Object arg2) throws Exception {
+            try {
+                return (Object) handle.invokeExact(target, arg1, arg2);
+            } catch (Throwable t) {
+                throw propagate(t);
+            }
+        }
+
+        private static Exception propagate(Throwable t) {
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            return t instanceof Exception ? (Exception) t : new RuntimeException(t);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.forge.trading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * P&L, trade count and win rate over the last minute, five minutes and hour, per trader and
+ * per symbol.
+ *
+ * Each key keeps one ring of BUCKETS time buckets per window plus running totals. A trade is
+ * added to its bucket and to the totals; moving a ring forward zeroes the buckets it steps
+ * over and subtracts them from the totals, so reading a window is O(1) and never rescans
+ * trades. Rings are allocated when a key is first seen - nothing is allocated per trade or
+ * per tick after that. Windows are relative to the clock (wall time by default), so their
+ * values change as time passes even when no trades arrive.
+ */
+class RollingWindows implements TradeStore.Listener {
+
+    enum Window {
+        ONE_MINUTE("1m", 1000L),
+        FIVE_MINUTES("5m", 5 * 1000L),
+        ONE_HOUR("1h", 60 * 1000L);
+
+        final String label;
+        final long bucketMillis;
+
+        Window(String label, long bucketMillis) {
+            this.label = label;
+            this.bucketMillis = bucketMillis;
+        }
+
+        long getSpanMillis() {
+            return bucketMillis * BUCKETS;
+        }
+    }
+
+    static final int BUCKETS = 60;
+
+    private static final Window[] WINDOWS = Window.values();
+
+    private static final LongSupplier WALL_CLOCK = new LongSupplier() {
+        @Override
+        public long getAsLong() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private final TradeStore store;
+    private final LongSupplier clock;
+
+    // Indexed by dictionary code, then window ordinal; only written under this object's lock
+    private Ring[][] traderRings = new Ring[16][];
+    private Ring[][] symbolRings = new Ring[16][];
+
+    RollingWindows(TradeStore store) {
+        this(store, WALL_CLOCK);
+    }
+
+    RollingWindows(TradeStore store, LongSupplier clock) {
+        this.store = store;
+        this.clock = clock;
+        store.addListener(this);
+    }
+
+    @Override
+    public synchronized void onTrade(TradeStore store, int row) {
+        long timestamp = store.getTimestamp(row);
+        double pnl = store.getPnl(row);
+
+        int trader = store.getTraderCode(row);
+        if (trader >= traderRings.length) {
+            traderRings = Arrays.copyOf(traderRings, Math.max(traderRings.length * 2, trader + 1));
+        }
+        add(rings(traderRings, trader), timestamp, pnl);
+
+        int symbol = store.getSymbolCode(row);
+        if (symbol >= symbolRings.length) {
+            symbolRings = Arrays.copyOf(symbolRings, Math.max(symbolRings.length * 2, symbol + 1));
+        }
+        add(rings(symbolRings, symbol), timestamp, pnl);
+    }
+
+    @Override
+    public synchronized void onClear(TradeStore store) {
+        traderRings = new Ring[16][];
+        symbolRings = new Ring[16][];
+    }
+
+    private static Ring[] rings(Ring[][] index, int code) {
+        Ring[] rings = index[code];
+        if (rings == null) {
+            rings = new Ring[WINDOWS.length];
+            for (Window window : WINDOWS) {
+                rings[window.ordinal()] = new Ring(window.bucketMillis);
+            }
+            index[code] = rings;
+        }
+        return rings;
+    }
+
+    private static void add(Ring[] rings, long timestamp, double pnl) {
+        for (Ring ring : rings) {
+            ring.add(timestamp, pnl);
+        }
+    }
+
+    /**
+     * @return the trader's windows as of now; all zero if the trader has no recent trades
+     */
+    Snapshot getTrader(String trader) {
+        return snapshot(true, store.getTraders().lookup(trader));
+    }
+
+    /**
+     * @return the symbol's windows as of now; all zero if the symbol has no recent trades
+     */
+    Snapshot getSymbol(String symbol) {
+        return snapshot(false, store.getSymbols().lookup(symbol));
+    }
+
+    private synchronized Snapshot snapshot(boolean trader, int code) {
+        Snapshot snapshot = new Snapshot();
+        Ring[][] index = trader ? traderRings : symbolRings;
+        if (code < 0 || code >= index.length || index[code] == null) {
+            return snapshot;
+        }
+        long now = clock.getAsLong();
+        for (Window window : WINDOWS) {
+            Ring ring = index[code][window.ordinal()];
+            ring.advance(Math.floorDiv(now, window.bucketMillis));
+            snapshot.pnl[window.ordinal()] = ring.totalPnl;
+            snapshot.trades[window.ordinal()] = ring.totalTrades;
+            snapshot.wins[window.ordinal()] = ring.totalWins;
+            snapshot.validUntilMillis = Math.min(snapshot.validUntilMillis, ring.getExpiryMillis());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the current time of the clock the windows are relative to
+     */
+    long currentTimeMillis() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Circular buckets of one window for one key. head is the bucket index of the newest slot;
+     * the ring covers head - BUCKETS + 1 .. head.
+     */
+    private static final class Ring {
+        final long bucketMillis;
+        final double[] pnl = new double[BUCKETS];
+        final int[] trades = new int[BUCKETS];
+        final int[] wins = new int[BUCKETS];
+        long head = -BUCKETS;
+
+        double totalPnl;
+        int totalTrades;
+        int totalWins;
+
+        Ring(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+        }
+
+        void add(long timestamp, double tradePnl) {
+            long bucket = Math.floorDiv(timestamp, bucketMillis);
+            advance(bucket);
+            if (bucket <= head - BUCKETS) {
+                return; // older than the window
+            }
+            int slot = (int) Math.floorMod(bucket, (long) BUCKETS);
+            pnl[slot] += tradePnl;
+            trades[slot]++;
+            totalPnl += tradePnl;
+            totalTrades++;
+            if (tradePnl > 0) {
+                wins[slot]++;
+                totalWins++;
+            }
+        }
+
+        /**
+         * @return when the oldest non-empty bucket falls out of the window, which is the next time
+         *         the totals change without a trade; Long.MAX_VALUE if the ring is empty
+         */
+        long getExpiryMillis() {
+            for (long bucket = head - BUCKETS + 1; bucket <= head; bucket++) {
+                if (trades[(int) Math.floorMod(bucket, (long) BUCKETS)] != 0) {
+                    return (bucket + BUCKETS) * bucketMillis;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Moves head forward to bucket, expiring the buckets that fall out of the window.
+         */
+        void advance(long bucket) {
+            if (bucket <= head) {
+                return;
+            }
+            if (bucket - head >= BUCKETS) {
+                Arrays.fill(pnl, 0);
+                Arrays.fill(trades, 0);
+                Arrays.fill(wins, 0);
+                totalPnl = 0;
+                totalTrades = 0;
+                totalWins = 0;
+            } else {
+                for (long expired = head + 1; expired <= bucket; expired++) {
+                    int slot = (int) Math.floorMod(expired, (long) BUCKETS);
+                    totalPnl -= pnl[slot];
+                    totalTrades -= trades[slot];
+                    totalWins -= wins[slot];
+                    pnl[slot] = 0;
+                    trades[slot] = 0;
+                    wins[slot] = 0;
+                }
+                if (totalTrades == 0) {
+                    totalPnl = 0; // drop accumulated rounding error
+                }
+            }
+            head = bucket;
+        }
+    }
+
+    /**
+     * Window values of one key, indexed by Window ordinal.
+     */
+    static final class Snapshot {
+        final double[] pnl = new double[WINDOWS.length];
+        final int[] trades = new int[WINDOWS.length];
+        final int[] wins = new int[WINDOWS.length];
+
+        // Until then (clock time) the values hold unless the key trades again
+        long validUntilMillis = Long.MAX_VALUE;
+
+        double getWinRate(Window window) {
+            int n = trades[window.ordinal()];
+            return n == 0 ? 0.0 : wins[window.ordinal()] * 100.0 / n;
+        }
+
+        /**
+         * One row per window, in window order, for handing to AMI script.
+         */
+        List<Map<String, Object>> toRows() {
+            List<Map<String, Object>> rows = new ArrayList<>(WINDOWS.length);
+            for (Window window : WINDOWS) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("window", window.label);
+                row.put("total_pnl", pnl[window.ordinal()]);
+                row.put("trade_count", trades[window.ordinal()]);
+                row.put("win_rate", getWinRate(window));
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.forge.trading;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Latest-wins coalescing of dashboard requests per layout.
+ *
+ * Bursts of requests for the same layout (users scrolling through the trades table) collapse
+ * into the most recent one. A request runs once no newer request arrived for the debounce
+ * window, but never later than maxLatency after the first request of the burst. A request that
+ * is superseded before it runs is cancelled; one that is already running sees its
+ * superseded check turn true and should stop early.
+ *
+ * Tasks run on a background thread, so they must only compute - panels may only be changed
+ * from the AMI session thread.
+ */
+class SelectionCoalescer {
+
+    /**
+     * Coalesced unit of work. superseded turns true as soon as a newer request is submitted.
+     */
+    interface Task {
+        void run(BooleanSupplier superseded);
+    }
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "trading-dashboard-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // Weak keys so closed layouts do not pin their slots
+    private final Map<Object, Slot> slots = Collections.synchronizedMap(new WeakHashMap<Object, Slot>());
+
+    private volatile long debounceMillis;
+    private volatile long maxLatencyMillis;
+
+    SelectionCoalescer(long debounceMillis, long maxLatencyMillis) {
+        configure(debounceMillis, maxLatencyMillis);
+    }
+
+    void configure(long debounceMillis, long maxLatencyMillis) {
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.maxLatencyMillis = Math.max(this.debounceMillis, maxLatencyMillis);
+    }
+
+    long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    /**
+     * Replaces any pending request for layout with task.
+     */
+    void submit(Object layout, Task task) {
+        Slot slot;
+        synchronized (slots) {
+            slot = slots.get(layout);
+            if (slot == null) {
+                slot = new Slot();
+                slots.put(layout, slot);
+            }
+        }
+        slot.submit(task, debounceMillis, maxLatencyMillis);
+    }
+
+    /**
+     * Drops any pending request for layout; one already running sees itself superseded.
+     */
+    void cancel(Object layout) {
+        Slot slot = slots.get(layout);
+        if (slot != null) {
+            slot.cancel();
+        }
+    }
+
+    private static class Slot implements Runnable {
+        private Task pending;
+        private ScheduledFuture<?> scheduled;
+        private long burstStartNanos;
+        private volatile long generation;
+
+        synchronized void submit(Task task, long debounceMillis, long maxLatencyMillis) {
+            long now = System.nanoTime();
+            if (pending == null) {
+                burstStartNanos = now;
+            }
+            pending = task;
+            generation++;
+
+            // Superseded before it ran - drop it
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+
+            long remainingLatency = maxLatencyMillis - TimeUnit.NANOSECONDS.toMillis(now - burstStartNanos);
+            long delay = Math.max(0, Math.min(debounceMillis, remainingLatency));
+            scheduled = SCHEDULER.schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void cancel() {
+            pending = null;
+            generation++;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            final Task task;
+            final long runGeneration;
+            synchronized (this) {
+                task = pending;
+                runGeneration = generation;
+                pending = null;
+                scheduled = null;
+            }
+            if (task == null) {
+                return;
+            }
+
+            try {
+                task.run(new BooleanSupplier() {
+                    @Override
+                    public boolean getAsBoolean() {
+                        return generation != runGeneration;
+                    }
+                });
+            } catch (Exception e) {
+                System.out.println("Coalesced dashboard update failed: " + e.getMessage());
+            }
+        }
+    }
+}
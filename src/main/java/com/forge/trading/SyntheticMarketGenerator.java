@@ -0,0 +1,793 @@
+package com.forge.trading;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deterministic stream of synthetic trades, quotes, orders, positions and risk updates for
+ * load testing, in the schema data/py/ami.py creates (trades, marketdata, orders, positions,
+ * riskmetrics).
+ *
+ * The same seed and Config always produce the same events. Timestamps advance at
+ * eventsPerSecond of simulated time from startMillis, so they repeat too for unthrottled
+ * and backfill runs, which keep the fixed default start. Throttled live runs start at the
+ * current time, so only their events and spacing repeat, not their timestamps. Prices follow a random walk per symbol, each trader sticks to a few
+ * preferred symbols and one desk (as in the demo data), and positions and desk risk are
+ * derived from the generated trades. Names are built once per cardinality and events are
+ * handed to the Sink as primitives and dictionary codes, so the generator allocates nothing
+ * per event.
+ */
+class SyntheticMarketGenerator {
+
+    static final String[] SIDES = { "BUY", "SELL" };
+    static final String[] ORDER_STATUSES = { "NEW", "PARTIAL", "FILLED", "CANCELLED", "REJECTED" };
+    static final String[] EXCHANGES = { "NYSE", "NASDAQ", "BATS", "ARCA" };
+
+    // The demo data's names come first, so small runs look like the existing dashboards
+    private static final String[] DEMO_SYMBOLS = { "AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "META", "NVDA", "AMD", "INTC", "ORCL" };
+    private static final String[] DEMO_TRADERS = { "John Smith", "Sarah Jones", "Mike Chen", "Lisa Wang", "Tom Brown", "Emma Davis" };
+    private static final String[] DEMO_DESKS = { "Equity Trading", "Options", "Fixed Income", "Commodities", "FX" };
+
+    // One-sided normal quantiles and 95% expected shortfall, in standard deviations
+    private static final double Z_95 = 1.645;
+    private static final double Z_99 = 2.326;
+    private static final double ES_95 = 2.063;
+
+    // Capital per desk that leverage is measured against
+    private static final double DESK_CAPITAL = 10000000.0;
+
+    // Events between wall-clock checks when throttled
+    private static final int PACING_INTERVAL = 1024;
+
+    /**
+     * Generation settings. Event weights are relative; set one to 0 to leave that table out.
+     */
+    static final class Config {
+        long seed = 42;
+        int traders = 6;
+        int symbols = 10;
+        int desks = 5;
+        int symbolsPerTrader = 3;
+
+        // Simulated event rate - drives timestamps, and the real rate when throttled
+        double eventsPerSecond = 10000;
+        boolean throttle = true;
+        long startMillis = 1700000000000L;
+
+        int quoteWeight = 60;
+        int orderWeight = 20;
+        int tradeWeight = 15;
+        int positionWeight = 4;
+        int riskWeight = 1;
+    }
+
+    /**
+     * Receives generated events. trader, symbol and desk are codes into the generator's
+     * names (traderName() etc.); side, status and exchange index SIDES, ORDER_STATUSES and EXCHANGES.
+     */
+    interface Sink extends Closeable {
+        void trade(long id, long timestamp, int symbol, double price, long volume, int side, int trader, int desk, double pnl) throws IOException;
+
+        void quote(int symbol, double bid, double ask, double last, long volume, double change, double changePercent,
+                   long timestamp, int exchange) throws IOException;
+
+        void order(long orderId, int symbol, int side, long quantity, double price, int status, long timestamp,
+                   int trader, long fillQuantity) throws IOException;
+
+        void position(int desk, int symbol, long quantity, double avgPrice, double marketValue, double unrealizedPnl,
+                      double realizedPnl, long lastUpdate) throws IOException;
+
+        void risk(int desk, double var95, double var99, double expectedShortfall, double exposure, double leverage,
+                  long timestamp) throws IOException;
+    }
+
+    private final Config config;
+    private final SplittableRandom random;
+
+    private final String[] traderNames;
+    private final String[] symbolNames;
+    private final String[] deskNames;
+
+    private final int[][] traderSymbols;
+    private final int[] traderDesk;
+    private final double[] traderEdge;
+
+    // Per symbol
+    private final double[] price;
+    private final double[] openPrice;
+    private final long[] marketVolume;
+    private final int[] exchange;
+
+    // Per desk x symbol, flattened as desk * symbols + symbol
+    private final long[] positionQuantity;
+    private final double[] positionAvgPrice;
+    private final double[] positionRealized;
+
+    // Per desk: trade P&L moments (Welford) and gross exposure
+    private final long[] deskTrades;
+    private final double[] deskMean;
+    private final double[] deskM2;
+    private final double[] deskExposure;
+
+    private final int totalWeight;
+    private long events;
+    private long nextTradeId = 1;
+    private long nextOrderId = 1000;
+    private double spareGaussian = Double.NaN;
+
+    private volatile boolean stopped;
+    private volatile Thread runner;
+    private final AtomicLong[] counts = new AtomicLong[5];
+    private volatile long runNanos;
+
+    SyntheticMarketGenerator(Config config) {
+        if (config.traders < 1 || config.symbols < 1 || config.desks < 1 || config.eventsPerSecond <= 0) {
+            throw new IllegalArgumentException("traders, symbols, desks and eventsPerSecond must be positive");
+        }
+        this.config = config;
+        this.random = new SplittableRandom(config.seed);
+        this.totalWeight = config.quoteWeight + config.orderWeight + config.tradeWeight + config.positionWeight + config.riskWeight;
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("At least one event weight must be positive");
+        }
+
+        traderNames = names(DEMO_TRADERS, config.traders, "Trader %04d");
+        symbolNames = names(DEMO_SYMBOLS, config.symbols, "SYM%05d");
+        deskNames = names(DEMO_DESKS, config.desks, "Desk %03d");
+
+        int perTrader = Math.max(1, Math.min(config.symbolsPerTrader, config.symbols));
+        traderSymbols = new int[config.traders][perTrader];
+        traderDesk = new int[config.traders];
+        traderEdge = new double[config.traders];
+        for (int t = 0; t < config.traders; t++) {
+            for (int i = 0; i < perTrader; i++) {
+                traderSymbols[t][i] = random.nextInt(config.symbols);
+            }
+            traderDesk[t] = t % config.desks;
+            traderEdge[t] = -0.002 + random.nextDouble() * 0.006;
+        }
+
+        price = new double[config.symbols];
+        openPrice = new double[config.symbols];
+        marketVolume = new long[config.symbols];
+        exchange = new int[config.symbols];
+        for (int s = 0; s < config.symbols; s++) {
+            price[s] = cents(20 + random.nextDouble() * 480);
+            openPrice[s] = price[s];
+            marketVolume[s] = 100000 + random.nextInt(400000);
+            exchange[s] = random.nextInt(EXCHANGES.length);
+        }
+
+        int positions = config.desks * config.symbols;
+        positionQuantity = new long[positions];
+        positionAvgPrice = new double[positions];
+        positionRealized = new double[positions];
+
+        deskTrades = new long[config.desks];
+        deskMean = new double[config.desks];
+        deskM2 = new double[config.desks];
+        deskExposure = new double[config.desks];
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new AtomicLong();
+        }
+    }
+
+    private static String[] names(String[] demo, int count, String pattern) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = i < demo.length ? demo[i] : String.format(pattern, i + 1);
+        }
+        return names;
+    }
+
+    String traderName(int code) {
+        return traderNames[code];
+    }
+
+    String symbolName(int code) {
+        return symbolNames[code];
+    }
+
+    String deskName(int code) {
+        return deskNames[code];
+    }
+
+    int getTraderCount() {
+        return traderNames.length;
+    }
+
+    int getSymbolCount() {
+        return symbolNames.length;
+    }
+
+    int getDeskCount() {
+        return deskNames.length;
+    }
+
+    /**
+     * Emits up to maxEvents events to sink, paced to eventsPerSecond when throttled. May be
+     * called again to continue the same stream, until stop() is called.
+     *
+     * @return the number of events emitted, fewer than maxEvents if stop() was called
+     */
+    long run(Sink sink, long maxEvents) throws IOException {
+        long start = System.nanoTime();
+        long emitted = 0;
+        runner = Thread.currentThread();
+        try {
+            while (emitted < maxEvents && !stopped) {
+                next(sink);
+                emitted++;
+                if (config.throttle && emitted % PACING_INTERVAL == 0) {
+                    long aheadNanos = (long) (emitted * 1e9 / config.eventsPerSecond) - (System.nanoTime() - start);
+                    if (aheadNanos > 0) {
+                        LockSupport.parkNanos(aheadNanos);
+                    }
+                }
+            }
+        } finally {
+            runner = null;
+            runNanos += System.nanoTime() - start;
+        }
+        return emitted;
+    }
+
+    /**
+     * Ends run() after the current event, waking it if it is waiting for the throttle.
+     */
+    void stop() {
+        stopped = true;
+        Thread thread = runner;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void next(Sink sink) throws IOException {
+        long timestamp = config.startMillis + (long) (events * 1000 / config.eventsPerSecond);
+        events++;
+
+        int pick = random.nextInt(totalWeight);
+        if ((pick -= config.quoteWeight) < 0) {
+            nextQuote(sink, timestamp);
+            counts[0].incrementAndGet();
+        } else if ((pick -= config.orderWeight) < 0) {
+            nextOrder(sink, timestamp);
+            counts[1].incrementAndGet();
+        } else if ((pick -= config.tradeWeight) < 0) {
+            nextTrade(sink, timestamp);
+            counts[2].incrementAndGet();
+        } else if ((pick -= config.positionWeight) < 0) {
+            nextPosition(sink, timestamp);
+            counts[3].incrementAndGet();
+        } else {
+            nextRisk(sink, timestamp);
+            counts[4].incrementAndGet();
+        }
+    }
+
+    private void nextQuote(Sink sink, long timestamp) throws IOException {
+        int s = random.nextInt(price.length);
+        price[s] = Math.max(0.01, cents(price[s] * (1 + 0.0005 * gaussian())));
+        double halfSpread = Math.max(0.01, cents(price[s] * 0.0002));
+        marketVolume[s] += 100 * (1 + random.nextInt(10));
+        double change = cents(price[s] - openPrice[s]);
+        sink.quote(s, cents(price[s] - halfSpread), cents(price[s] + halfSpread), price[s], marketVolume[s],
+            change, cents(change / openPrice[s] * 100), timestamp, exchange[s]);
+    }
+
+    private void nextOrder(Sink sink, long timestamp) throws IOException {
+        int t = random.nextInt(traderNames.length);
+        int s = traderSymbols[t][random.nextInt(traderSymbols[t].length)];
+        long quantity = 100 + random.nextInt(401);
+        int status = random.nextInt(ORDER_STATUSES.length);
+        long filled = status == 2 ? quantity : status == 1 ? quantity / 2 : 0;
+        double limit = cents(price[s] * (1 + 0.002 * gaussian()));
+        sink.order(nextOrderId++, s, random.nextInt(SIDES.length), quantity, limit, status, timestamp, t, filled);
+    }
+
+    private void nextTrade(Sink sink, long timestamp) throws IOException {
+        int t = random.nextInt(traderNames.length);
+        int s = traderSymbols[t][random.nextInt(traderSymbols[t].length)];
+        int desk = traderDesk[t];
+        int side = random.nextInt(SIDES.length);
+        long volume = 100 + random.nextInt(901);
+        double fill = cents(price[s] * (1 + 0.0002 * gaussian()));
+        // P&L is the trader's edge plus noise, roughly +/- a few thousand per trade as in the demo data
+        double pnl = cents(volume * fill * (traderEdge[t] + 0.02 * gaussian()));
+
+        long n = ++deskTrades[desk];
+        double delta = pnl - deskMean[desk];
+        deskMean[desk] += delta / n;
+        deskM2[desk] += delta * (pnl - deskMean[desk]);
+        applyFill(desk * price.length + s, desk, side == 0 ? volume : -volume, fill);
+
+        sink.trade(nextTradeId++, timestamp, s, fill, volume, side, t, desk, pnl);
+    }
+
+    /**
+     * Moves a desk's position by signed quantity at fill, realizing P&L on the part that reduces it.
+     */
+    private void applyFill(int position, int desk, long quantity, double fill) {
+        long before = positionQuantity[position];
+        double avg = positionAvgPrice[position];
+        deskExposure[desk] -= Math.abs(before) * avg;
+
+        long after = before + quantity;
+        if (before == 0 || Long.signum(before) == Long.signum(quantity)) {
+            avg = (avg * Math.abs(before) + fill * Math.abs(quantity)) / Math.abs(after);
+        } else {
+            long closed = Math.min(Math.abs(before), Math.abs(quantity));
+            positionRealized[position] += closed * (fill - avg) * Long.signum(before);
+            if (after == 0) {
+                avg = 0;
+            } else if (Long.signum(after) != Long.signum(before)) {
+                avg = fill; // flipped: the remainder opens at the fill price
+            }
+        }
+        positionQuantity[position] = after;
+        positionAvgPrice[position] = avg;
+        deskExposure[desk] += Math.abs(after) * avg;
+    }
+
+    private void nextPosition(Sink sink, long timestamp) throws IOException {
+        int desk = random.nextInt(deskNames.length);
+        int s = random.nextInt(price.length);
+        int position = desk * price.length + s;
+        long quantity = positionQuantity[position];
+        double avg = positionAvgPrice[position];
+        sink.position(desk, s, quantity, cents(avg), cents(quantity * price[s]), cents(quantity * (price[s] - avg)),
+            cents(positionRealized[position]), timestamp);
+    }
+
+    private void nextRisk(Sink sink, long timestamp) throws IOException {
+        int desk = random.nextInt(deskNames.length);
+        long n = deskTrades[desk];
+        double sigma = n > 1 ? Math.sqrt(deskM2[desk] / (n - 1)) : 0;
+        double mean = deskMean[desk];
+        double exposure = Math.max(0, deskExposure[desk]);
+        sink.risk(desk, cents(Math.max(0, Z_95 * sigma - mean)), cents(Math.max(0, Z_99 * sigma - mean)),
+            cents(Math.max(0, ES_95 * sigma - mean)), cents(exposure), Math.round(exposure / DESK_CAPITAL * 100) / 100.0, timestamp);
+    }
+
+    /**
+     * Standard normal variate (Box-Muller, second value kept for the next call).
+     */
+    private double gaussian() {
+        if (!Double.isNaN(spareGaussian)) {
+            double value = spareGaussian;
+            spareGaussian = Double.NaN;
+            return value;
+        }
+        double u;
+        double v;
+        double r;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            r = u * u + v * v;
+        } while (r >= 1 || r == 0);
+        double scale = Math.sqrt(-2 * Math.log(r) / r);
+        spareGaussian = v * scale;
+        return u * scale;
+    }
+
+    private static double cents(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    String getStats() {
+        long total = 0;
+        for (AtomicLong count : counts) {
+            total += count.get();
+        }
+        double seconds = runNanos / 1e9;
+        return String.format("Generator: %,d events (%,.0f/s) | quotes %,d | orders %,d | trades %,d | positions %,d | risk %,d",
+            total, seconds > 0 ? total / seconds : 0.0, counts[0].get(), counts[1].get(), counts[2].get(),
+            counts[3].get(), counts[4].get());
+    }
+
+    // ========================================================================
+    // SINKS
+    // ========================================================================
+
+    /**
+     * Appends to the ami.py tables over JDBC, e.g. jdbc:sqlite:trading_data.db (needs the
+     * sqlite-jdbc driver on the classpath). Tables are created if missing; positions and
+     * riskmetrics rows are appended as a history rather than updated in place.
+     */
+    static final class JdbcSink implements Sink {
+        private final SyntheticMarketGenerator generator;
+        private final Connection connection;
+        private final int batchSize;
+        private final PreparedStatement trades;
+        private final PreparedStatement quotes;
+        private final PreparedStatement orders;
+        private final PreparedStatement positions;
+        private final PreparedStatement risk;
+        private int pending;
+
+        JdbcSink(SyntheticMarketGenerator generator, String url, int batchSize) throws IOException {
+            this.generator = generator;
+            this.batchSize = Math.max(1, batchSize);
+            try {
+                connection = DriverManager.getConnection(url);
+                connection.setAutoCommit(false);
+                try (Statement ddl = connection.createStatement()) {
+                    ddl.execute("CREATE TABLE IF NOT EXISTS trades (id INTEGER PRIMARY KEY, timestamp INTEGER, symbol TEXT, "
+                        + "price REAL, volume INTEGER, side TEXT, trader TEXT, desk TEXT, pnl REAL)");
+                    ddl.execute("CREATE TABLE IF NOT EXISTS positions (account TEXT, symbol TEXT, quantity INTEGER, avgPrice REAL, "
+                        + "marketValue REAL, unrealizedPnl REAL, realizedPnl REAL, lastUpdate INTEGER)");
+                    ddl.execute("CREATE TABLE IF NOT EXISTS marketdata (symbol TEXT, bid REAL, ask REAL, last REAL, volume INTEGER, "
+                        + "change REAL, changePercent REAL, timestamp INTEGER, exchange TEXT)");
+                    ddl.execute("CREATE TABLE IF NOT EXISTS riskmetrics (desk TEXT, var95 REAL, var99 REAL, expectedShortfall REAL, "
+                        + "exposure REAL, leverage REAL, timestamp INTEGER)");
+                    ddl.execute("CREATE TABLE IF NOT EXISTS orders (orderId TEXT, symbol TEXT, side TEXT, quantity INTEGER, price REAL, "
+                        + "status TEXT, timestamp INTEGER, trader TEXT, fillQuantity INTEGER)");
+                }
+                // Trade ids are left to the database so runs can append to existing data
+                trades = connection.prepareStatement("INSERT INTO trades (timestamp, symbol, price, volume, side, trader, desk, pnl) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                quotes = connection.prepareStatement("INSERT INTO marketdata VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                orders = connection.prepareStatement("INSERT INTO orders VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                positions = connection.prepareStatement("INSERT INTO positions VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                risk = connection.prepareStatement("INSERT INTO riskmetrics VALUES (?, ?, ?, ?, ?, ?, ?)");
+            } catch (SQLException e) {
+                throw new IOException("Cannot open " + url + ": " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void trade(long id, long timestamp, int symbol, double price, long volume, int side, int trader, int desk,
+                          double pnl) throws IOException {
+            try {
+                trades.setLong(1, timestamp);
+                trades.setString(2, generator.symbolName(symbol));
+                trades.setDouble(3, price);
+                trades.setLong(4, volume);
+                trades.setString(5, SIDES[side]);
+                trades.setString(6, generator.traderName(trader));
+                trades.setString(7, generator.deskName(desk));
+                trades.setDouble(8, pnl);
+                added(trades);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void quote(int symbol, double bid, double ask, double last, long volume, double change, double changePercent,
+                          long timestamp, int exchange) throws IOException {
+            try {
+                quotes.setString(1, generator.symbolName(symbol));
+                quotes.setDouble(2, bid);
+                quotes.setDouble(3, ask);
+                quotes.setDouble(4, last);
+                quotes.setLong(5, volume);
+                quotes.setDouble(6, change);
+                quotes.setDouble(7, changePercent);
+                quotes.setLong(8, timestamp);
+                quotes.setString(9, EXCHANGES[exchange]);
+                added(quotes);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void order(long orderId, int symbol, int side, long quantity, double price, int status, long timestamp,
+                          int trader, long fillQuantity) throws IOException {
+            try {
+                orders.setString(1, "ORD" + orderId);
+                orders.setString(2, generator.symbolName(symbol));
+                orders.setString(3, SIDES[side]);
+                orders.setLong(4, quantity);
+                orders.setDouble(5, price);
+                orders.setString(6, ORDER_STATUSES[status]);
+                orders.setLong(7, timestamp);
+                orders.setString(8, generator.traderName(trader));
+                orders.setLong(9, fillQuantity);
+                added(orders);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void position(int desk, int symbol, long quantity, double avgPrice, double marketValue, double unrealizedPnl,
+                             double realizedPnl, long lastUpdate) throws IOException {
+            try {
+                positions.setString(1, generator.deskName(desk));
+                positions.setString(2, generator.symbolName(symbol));
+                positions.setLong(3, quantity);
+                positions.setDouble(4, avgPrice);
+                positions.setDouble(5, marketValue);
+                positions.setDouble(6, unrealizedPnl);
+                positions.setDouble(7, realizedPnl);
+                positions.setLong(8, lastUpdate);
+                added(positions);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void risk(int desk, double var95, double var99, double expectedShortfall, double exposure, double leverage,
+                         long timestamp) throws IOException {
+            try {
+                risk.setString(1, generator.deskName(desk));
+                risk.setDouble(2, var95);
+                risk.setDouble(3, var99);
+                risk.setDouble(4, expectedShortfall);
+                risk.setDouble(5, exposure);
+                risk.setDouble(6, leverage);
+                risk.setLong(7, timestamp);
+                added(risk);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void added(PreparedStatement statement) throws SQLException {
+            statement.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            for (PreparedStatement statement : new PreparedStatement[] { trades, quotes, orders, positions, risk }) {
+                statement.executeBatch();
+            }
+            connection.commit();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // nothing more to write
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes one big-endian binary file per table into a directory, plus dictionary.tsv mapping
+     * each code to its name (kind, code, name per line). Each .bin file starts with the int
+     * MAGIC; records are fixed width, with names and enums as int codes:
+     * <pre>
+     * trades.bin      id:long timestamp:long symbol:int price:double volume:long side:int trader:int desk:int pnl:double
+     * marketdata.bin  symbol:int bid:double ask:double last:double volume:long change:double changePercent:double timestamp:long exchange:int
+     * orders.bin      orderId:long symbol:int side:int quantity:long price:double status:int timestamp:long trader:int fillQuantity:long
+     * positions.bin   account(desk):int symbol:int quantity:long avgPrice:double marketValue:double unrealizedPnl:double realizedPnl:double lastUpdate:long
+     * riskmetrics.bin desk:int var95:double var99:double expectedShortfall:double exposure:double leverage:double timestamp:long
+     * </pre>
+     */
+    static final class BinarySink implements Sink {
+        static final int MAGIC = 0x534d4731; // "SMG1"
+
+        private final DataOutputStream trades;
+        private final DataOutputStream quotes;
+        private final DataOutputStream orders;
+        private final DataOutputStream positions;
+        private final DataOutputStream risk;
+
+        BinarySink(SyntheticMarketGenerator generator, Path directory) throws IOException {
+            Files.createDirectories(directory);
+            try (PrintWriter dictionary = new PrintWriter(Files.newBufferedWriter(directory.resolve("dictionary.tsv"), StandardCharsets.UTF_8))) {
+                writeNames(dictionary, "trader", generator.traderNames);
+                writeNames(dictionary, "symbol", generator.symbolNames);
+                writeNames(dictionary, "desk", generator.deskNames);
+                writeNames(dictionary, "side", SIDES);
+                writeNames(dictionary, "status", ORDER_STATUSES);
+                writeNames(dictionary, "exchange", EXCHANGES);
+            }
+            trades = open(directory, "trades.bin");
+            quotes = open(directory, "marketdata.bin");
+            orders = open(directory, "orders.bin");
+            positions = open(directory, "positions.bin");
+            risk = open(directory, "riskmetrics.bin");
+        }
+
+        private static void writeNames(PrintWriter out, String kind, String[] names) {
+            for (int code = 0; code < names.length; code++) {
+                out.println(kind + "\t" + code + "\t" + names[code]);
+            }
+        }
+
+        private static DataOutputStream open(Path directory, String name) throws IOException {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(directory.resolve(name).toFile()), 1 << 16));
+            out.writeInt(MAGIC);
+            return out;
+        }
+
+        @Override
+        public void trade(long id, long timestamp, int symbol, double price, long volume, int side, int trader, int desk,
+                          double pnl) throws IOException {
+            trades.writeLong(id);
+            trades.writeLong(timestamp);
+            trades.writeInt(symbol);
+            trades.writeDouble(price);
+            trades.writeLong(volume);
+            trades.writeInt(side);
+            trades.writeInt(trader);
+            trades.writeInt(desk);
+            trades.writeDouble(pnl);
+        }
+
+        @Override
+        public void quote(int symbol, double bid, double ask, double last, long volume, double change, double changePercent,
+                          long timestamp, int exchange) throws IOException {
+            quotes.writeInt(symbol);
+            quotes.writeDouble(bid);
+            quotes.writeDouble(ask);
+            quotes.writeDouble(last);
+            quotes.writeLong(volume);
+            quotes.writeDouble(change);
+            quotes.writeDouble(changePercent);
+            quotes.writeLong(timestamp);
+            quotes.writeInt(exchange);
+        }
+
+        @Override
+        public void order(long orderId, int symbol, int side, long quantity, double price, int status, long timestamp,
+                          int trader, long fillQuantity) throws IOException {
+            orders.writeLong(orderId);
+            orders.writeInt(symbol);
+            orders.writeInt(side);
+            orders.writeLong(quantity);
+            orders.writeDouble(price);
+            orders.writeInt(status);
+            orders.writeLong(timestamp);
+            orders.writeInt(trader);
+            orders.writeLong(fillQuantity);
+        }
+
+        @Override
+        public void position(int desk, int symbol, long quantity, double avgPrice, double marketValue, double unrealizedPnl,
+                             double realizedPnl, long lastUpdate) throws IOException {
+            positions.writeInt(desk);
+            positions.writeInt(symbol);
+            positions.writeLong(quantity);
+            positions.writeDouble(avgPrice);
+            positions.writeDouble(marketValue);
+            positions.writeDouble(unrealizedPnl);
+            positions.writeDouble(realizedPnl);
+            positions.writeLong(lastUpdate);
+        }
+
+        @Override
+        public void risk(int desk, double var95, double var99, double expectedShortfall, double exposure, double leverage,
+                         long timestamp) throws IOException {
+            risk.writeInt(desk);
+            risk.writeDouble(var95);
+            risk.writeDouble(var99);
+            risk.writeDouble(expectedShortfall);
+            risk.writeDouble(exposure);
+            risk.writeDouble(leverage);
+            risk.writeLong(timestamp);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (DataOutputStream out : new DataOutputStream[] { trades, quotes, orders, positions, risk }) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Feeds the dashboard in-process: every table through a TradeFeed when one is given (trades
+     * then also reach the TradeStore), otherwise trades straight into the TradeStore and the
+     * other tables dropped.
+     */
+    static final class InProcessSink implements Sink {
+        private final SyntheticMarketGenerator generator;
+        private final TradeStore store;
+        private final TradeFeed feed;
+        private final AtomicLong rejected = new AtomicLong();
+
+        InProcessSink(SyntheticMarketGenerator generator, TradeStore store, TradeFeed feed) {
+            this.generator = generator;
+            this.store = store;
+            this.feed = feed;
+        }
+
+        @Override
+        public void trade(long id, long timestamp, int symbol, double price, long volume, int side, int trader, int desk,
+                          double pnl) {
+            String symbolName = generator.symbolName(symbol);
+            String traderName = generator.traderName(trader);
+            String deskName = generator.deskName(desk);
+            if (feed == null) {
+                store.addTrade(timestamp, symbolName, price, volume, SIDES[side], traderName, deskName, pnl);
+            } else {
+                accepted(feed.publishTrade(timestamp, symbolName, price, volume, SIDES[side], traderName, deskName, pnl));
+            }
+        }
+
+        @Override
+        public void quote(int symbol, double bid, double ask, double last, long volume, double change, double changePercent,
+                          long timestamp, int exchange) {
+            if (feed != null) {
+                accepted(feed.publishMarketData(generator.symbolName(symbol), bid, ask, last, volume, change, changePercent,
+                    timestamp, EXCHANGES[exchange]));
+            }
+        }
+
+        @Override
+        public void order(long orderId, int symbol, int side, long quantity, double price, int status, long timestamp,
+                          int trader, long fillQuantity) {
+            if (feed != null) {
+                accepted(feed.publishOrder("ORD" + orderId, generator.symbolName(symbol), SIDES[side], quantity, price,
+                    ORDER_STATUSES[status], timestamp, generator.traderName(trader), fillQuantity));
+            }
+        }
+
+        @Override
+        public void position(int desk, int symbol, long quantity, double avgPrice, double marketValue, double unrealizedPnl,
+                             double realizedPnl, long lastUpdate) {
+            if (feed != null) {
+                accepted(feed.publishPosition(generator.deskName(desk), generator.symbolName(symbol), quantity, avgPrice,
+                    marketValue, unrealizedPnl, realizedPnl, lastUpdate));
+            }
+        }
+
+        @Override
+        public void risk(int desk, double var95, double var99, double expectedShortfall, double exposure, double leverage,
+                         long timestamp) {
+            if (feed != null) {
+                accepted(feed.publishRiskMetrics(generator.deskName(desk), var95, var99, expectedShortfall, exposure,
+                    leverage, timestamp));
+            }
+        }
+
+        private void accepted(long seq) {
+            if (seq < 0) {
+                rejected.incrementAndGet(); // feed backed up past its blocking limit
+            }
+        }
+
+        long getRejected() {
+            return rejected.get();
+        }
+
+        @Override
+        public void close() {
+            // the feed and store outlive a generator run
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.forge.trading;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes trades, orders, market data, positions and risk metrics to AMI as real-time relay messages.
+ *
+ * Each event is encoded as one relay object message (O|I="trades-mvd320aq.1-42"|T="trades"|...)
+ * stamped with a feed-wide sequence number. The object id I is the table, the feed's run epoch
+ * and the sequence number, so a message resent after a broken connection updates the row it
+ * already created instead of inserting a second one, and gaps in seq show lost events. The
+ * sequence restarts with every feed; the epoch (start time and feed number) keeps one run's ids
+ * from overwriting an earlier run's rows. Messages go through a bounded queue to a flusher
+ * thread that writes them in batches - when batchSize messages are waiting or flushMillis after
+ * the first one, whichever comes first. A full queue blocks the publisher for up to
+ * maxBlockMillis (backpressure) and then rejects the event.
+ *
+ * Accepted trades are also appended to the TradeStore, so the in-process aggregators and
+ * caches update incrementally instead of the panels re-querying the trades table.
+ *
+ * The relay fills AMI real-time tables named after the tables above. The dashboard's own
+ * datamodels still query the MockData datasource; feed trades reach its panels only through
+ * the TradeStore. The real-time tables are for panels or datamodels configured to read them.
+ */
+class TradeFeed implements Closeable {
+
+    /**
+     * Where batches of encoded messages are written, one message per line.
+     */
+    interface Sink extends Closeable {
+        void write(List<String> messages) throws IOException;
+    }
+
+    private static final AtomicLong THREAD_IDS = new AtomicLong();
+
+    private final TradeStore store;
+    private final Sink sink;
+    private final int batchSize;
+    private final long flushMillis;
+    private final long maxBlockMillis;
+
+    // Part of every object id, unique per feed instance - see the class comment
+    private final String epoch;
+
+    private final BlockingQueue<String> queue;
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    // Written under this object's lock, so numbers are assigned in queue order
+    private volatile long sequence;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    TradeFeed(TradeStore store, Sink sink, int batchSize, long flushMillis, int queueCapacity, long maxBlockMillis) {
+        this.store = store;
+        this.sink = sink;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(1, flushMillis);
+        this.maxBlockMillis = Math.max(0, maxBlockMillis);
+        this.queue = new ArrayBlockingQueue<>(Math.max(this.batchSize, queueCapacity));
+        long feedId = THREAD_IDS.incrementAndGet();
+        this.epoch = Long.toString(System.currentTimeMillis(), 36) + '.' + feedId;
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "trading-dashboard-feed-" + feedId);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Publishes a trade and appends it to the TradeStore.
+     *
+     * @return the trade's sequence number, or -1 if the queue stayed full for maxBlockMillis
+     */
+    synchronized long publishTrade(long timestamp, String symbol, double price, long volume,
+                                   String side, String trader, String desk, double pnl) {
+        long seq = sequence + 1;
+        String message = new Message("trades", epoch, seq)
+            .field("id", seq)
+            .field("timestamp", timestamp)
+            .field("symbol", symbol)
+            .field("price", price)
+            .field("volume", volume)
+            .field("side", side)
+            .field("trader", trader)
+            .field("desk", desk)
+            .field("pnl", pnl)
+            .toString();
+        if (!enqueue(message)) {
+            return -1;
+        }
+        sequence = seq;
+        store.addTrade(timestamp, symbol, price, volume, side, trader, desk, pnl);
+        return seq;
+    }
+
+    /**
+     * @return the order update's sequence number, or -1 if the queue stayed full for maxBlockMillis
+     */
+    synchronized long publishOrder(String orderId, String symbol, String side, long quantity, double price,
+                                   String status, long timestamp, String trader, long fillQuantity) {
+        long seq = sequence + 1;
+        String message = new Message("orders", epoch, seq)
+            .field("orderId", orderId)
+            .field("symbol", symbol)
+            .field("side", side)
+            .field("quantity", quantity)
+            .field("price", price)
+            .field("status", status)
+            .field("timestamp", timestamp)
+            .field("trader", trader)
+            .field("fillQuantity", fillQuantity)
+            .toString();
+        if (!enqueue(message)) {
+            return -1;
+        }
+        sequence = seq;
+        return seq;
+    }
+
+    /**
+     * @return the quote's sequence number, or -1 if the queue stayed full for maxBlockMillis
+     */
+    synchronized long publishMarketData(String symbol, double bid, double ask, double last, long volume,
+                                        double change, double changePercent, long timestamp, String exchange) {
+        long seq = sequence + 1;
+        String message = new Message("marketdata", epoch, seq)
+            .field("symbol", symbol)
+            .field("bid", bid)
+            .field("ask", ask)
+            .field("last", last)
+            .field("volume", volume)
+            .field("change", change)
+            .field("changePercent", changePercent)
+            .field("timestamp", timestamp)
+            .field("exchange", exchange)
+            .toString();
+        if (!enqueue(message)) {
+            return -1;
+        }
+        sequence = seq;
+        return seq;
+    }
+
+    /**
+     * @return the position update's sequence number, or -1 if the queue stayed full for maxBlockMillis
+     */
+    synchronized long publishPosition(String account, String symbol, long quantity, double avgPrice, double marketValue,
+                                      double unrealizedPnl, double realizedPnl, long lastUpdate) {
+        long seq = sequence + 1;
+        String message = new Message("positions", epoch, seq)
+            .field("account", account)
+            .field("symbol", symbol)
+            .field("quantity", quantity)
+            .field("avgPrice", avgPrice)
+            .field("marketValue", marketValue)
+            .field("unrealizedPnl", unrealizedPnl)
+            .field("realizedPnl", realizedPnl)
+            .field("lastUpdate", lastUpdate)
+            .toString();
+        if (!enqueue(message)) {
+            return -1;
+        }
+        sequence = seq;
+        return seq;
+    }
+
+    /**
+     * @return the risk update's sequence number, or -1 if the queue stayed full for maxBlockMillis
+     */
+    synchronized long publishRiskMetrics(String desk, double var95, double var99, double expectedShortfall,
+                                         double exposure, double leverage, long timestamp) {
+        long seq = sequence + 1;
+        String message = new Message("riskmetrics", epoch, seq)
+            .field("desk", desk)
+            .field("var95", var95)
+            .field("var99", var99)
+            .field("expectedShortfall", expectedShortfall)
+            .field("exposure", exposure)
+            .field("leverage", leverage)
+            .field("timestamp", timestamp)
+            .toString();
+        if (!enqueue(message)) {
+            return -1;
+        }
+        sequence = seq;
+        return seq;
+    }
+
+    private boolean enqueue(String message) {
+        if (closed) {
+            throw new IllegalStateException("Trade feed is closed");
+        }
+        try {
+            if (queue.offer(message) || queue.offer(message, maxBlockMillis, TimeUnit.MILLISECONDS)) {
+                published.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    private void flushLoop() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                String first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    String next = remaining > 0 && !closed ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() wakes us to flush what is left
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<String> batch) {
+        try {
+            sink.write(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            System.out.println("❌ Trade feed dropped batch of " + batch.size() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops accepting events, writes everything already queued and closes the sink.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join(Math.max(1000, flushMillis * 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    String getStats() {
+        return String.format("Trade feed: run %s | seq %d | published %d | written %d in %d batches | queued %d | rejected %d | failed batches %d",
+            epoch, getSequence(), published.get(), written.get(), batches.get(), queue.size(), rejected.get(), failures.get());
+    }
+
+    /**
+     * One relay object message: O|I="table-epoch-1"|T="table"|seq=1L|name=value... Strings are quoted,
+     * longs carry an L suffix and doubles a D suffix.
+     */
+    static final class Message {
+        private final StringBuilder text = new StringBuilder(160);
+
+        Message(String table, String epoch, long seq) {
+            text.append("O|I=\"").append(table).append('-').append(epoch).append('-').append(seq).append("\"|T=");
+            appendQuoted(text, table);
+            field("seq", seq);
+        }
+
+        Message field(String name, String value) {
+            text.append('|').append(name).append('=');
+            appendQuoted(text, value);
+            return this;
+        }
+
+        Message field(String name, long value) {
+            text.append('|').append(name).append('=').append(value).append('L');
+            return this;
+        }
+
+        Message field(String name, double value) {
+            text.append('|').append(name).append('=').append(value).append('D');
+            return this;
+        }
+
+        private static void appendQuoted(StringBuilder out, String value) {
+            out.append('"');
+            if (value != null) {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"' || c == '\\') {
+                        out.append('\\');
+                    }
+                    out.append(c == '\n' || c == '\r' ? ' ' : c);
+                }
+            }
+            out.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    /**
+     * Writes batches to the AMI relay's real-time port, logging in on connect. A failed batch
+     * is retried once on a fresh connection. Messages the relay already received are then seen
+     * twice, but with the same object id, so the second one updates the row the first created.
+     */
+    static final class RelaySink implements Sink {
+        private final String host;
+        private final int port;
+        private final String loginId;
+        private final int connectTimeoutMillis;
+
+        private Socket socket;
+        private Writer out;
+        private volatile String lastReply = "";
+
+        RelaySink(String host, int port, String loginId, int connectTimeoutMillis) {
+            this.host = host;
+            this.port = port;
+            this.loginId = loginId;
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+
+        @Override
+        public synchronized void write(List<String> messages) throws IOException {
+            try {
+                send(messages);
+            } catch (IOException e) {
+                disconnect();
+                send(messages);
+            }
+        }
+
+        private void send(List<String> messages) throws IOException {
+            if (out == null) {
+                connect();
+            }
+            for (String message : messages) {
+                out.write(message);
+                out.write('\n');
+            }
+            out.flush();
+        }
+
+        private void connect() throws IOException {
+            Socket connection = new Socket();
+            try {
+                connection.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+                connection.setTcpNoDelay(true);
+                out = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8);
+                out.write("L|I=\"" + loginId + "\"\n");
+                out.flush();
+            } catch (IOException e) {
+                connection.close();
+                out = null;
+                throw e;
+            }
+            socket = connection;
+            startReplyReader(connection);
+            System.out.println("✅ Trade feed connected to AMI relay " + host + ":" + port);
+        }
+
+        /**
+         * Drains the relay's replies so its writes never block on a full socket buffer.
+         */
+        private void startReplyReader(final Socket connection) throws IOException {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            lastReply = line;
+                        }
+                    } catch (IOException e) {
+                        // socket closed
+                    }
+                }
+            }, "trading-dashboard-feed-replies-" + THREAD_IDS.incrementAndGet());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void disconnect() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // already broken
+            }
+            socket = null;
+            out = null;
+        }
+
+        String getLastReply() {
+            return lastReply;
+        }
+
+        @Override
+        public synchronized void close() {
+            disconnect();
+        }
+    }
+
+    /**
+     * Writes batches to a Writer, e.g. a file to record a feed for FileReplaySource.
+     */
+    static final class WriterSink implements Sink {
+        private final Writer out;
+
+        WriterSink(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(List<String> messages) throws IOException {
+            for (String message : messages) {
+                out.write(message);
+                out.write('\n');
+            }
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+}
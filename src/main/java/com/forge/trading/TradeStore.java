@@ -0,0 +1,289 @@
+package com.forge.trading;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Columnar in-memory store for the trades table.
+ *
+ * Numeric columns (timestamp, price, volume, pnl) are kept in primitive arrays and
+ * the string columns (trader, symbol, desk, side) are dictionary-encoded into int codes,
+ * so millions of rows cost a few dozen bytes each and scans never touch boxed objects.
+ * Rows are append-only; readers see every row below the published row count.
+ * Incremental consumers register a {@link Listener} and are called for each appended row.
+ */
+public class TradeStore {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    // Shared store used by TradingDashboardManager and the chatbot
+    private static final TradeStore INSTANCE = new TradeStore();
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+    private double[] pnls = new double[INITIAL_CAPACITY];
+    private int[] traderCodes = new int[INITIAL_CAPACITY];
+    private int[] symbolCodes = new int[INITIAL_CAPACITY];
+    private int[] deskCodes = new int[INITIAL_CAPACITY];
+    private int[] sideCodes = new int[INITIAL_CAPACITY];
+
+    private final Dictionary traders = new Dictionary();
+    private final Dictionary symbols = new Dictionary();
+    private final Dictionary desks = new Dictionary();
+    private final Dictionary sides = new Dictionary();
+
+    // Written under the store lock, read without it - rows below size are immutable
+    private volatile int size = 0;
+
+    // Bumped on every append and clear; lets caches tell whether their inputs changed
+    private volatile long version = 0;
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public static TradeStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Appends one trade and returns its row index.
+     */
+    public synchronized int addTrade(long timestamp, String symbol, double price, long volume,
+                                     String side, String trader, String desk, double pnl) {
+        int row = size;
+        if (row == timestamps.length) {
+            grow(row * 2);
+        }
+
+        timestamps[row] = timestamp;
+        prices[row] = price;
+        volumes[row] = volume;
+        pnls[row] = pnl;
+        traderCodes[row] = traders.encode(trader);
+        symbolCodes[row] = symbols.encode(symbol);
+        deskCodes[row] = desks.encode(desk);
+        sideCodes[row] = sides.encode(side);
+
+        size = row + 1;
+        version++;
+
+        // Called under the store lock so listeners see rows in append order
+        for (Listener listener : listeners) {
+            listener.onTrade(this, row);
+        }
+        return row;
+    }
+
+    /**
+     * Registers a listener and replays every existing row into it.
+     */
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        int rows = size;
+        for (int row = 0; row < rows; row++) {
+            listener.onTrade(this, row);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Removes every row and dictionary entry.
+     */
+    public synchronized void clear() {
+        size = 0;
+        version++;
+        traders.clear();
+        symbols.clear();
+        desks.clear();
+        sides.clear();
+        for (Listener listener : listeners) {
+            listener.onClear(this);
+        }
+    }
+
+    private void grow(int capacity) {
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        pnls = Arrays.copyOf(pnls, capacity);
+        traderCodes = Arrays.copyOf(traderCodes, capacity);
+        symbolCodes = Arrays.copyOf(symbolCodes, capacity);
+        deskCodes = Arrays.copyOf(deskCodes, capacity);
+        sideCodes = Arrays.copyOf(sideCodes, capacity);
+    }
+
+    /**
+     * Computes P&L, trade count, win count and most-traded symbol for one trader
+     * in a single pass over the trader and pnl columns.
+     *
+     * @return false if the trader has never traded
+     */
+    public synchronized boolean scanTrader(String trader, TraderScan out) {
+        out.reset();
+        int traderCode = traders.lookup(trader);
+        if (traderCode < 0) {
+            return false;
+        }
+
+        int[] symbolCounts = new int[symbols.size()];
+        int rows = size;
+        for (int row = 0; row < rows; row++) {
+            if (traderCodes[row] != traderCode) {
+                continue;
+            }
+            double pnl = pnls[row];
+            out.totalPnl += pnl;
+            out.tradeCount++;
+            if (pnl > 0) {
+                out.winCount++;
+            }
+            symbolCounts[symbolCodes[row]]++;
+        }
+
+        int topCode = -1;
+        for (int code = 0; code < symbolCounts.length; code++) {
+            if (topCode < 0 || symbolCounts[code] > symbolCounts[topCode]) {
+                topCode = code;
+            }
+        }
+        out.topSymbol = topCode >= 0 && symbolCounts[topCode] > 0 ? symbols.decode(topCode) : null;
+        return out.tradeCount > 0;
+    }
+
+    // Column accessors - callers must stay below size()
+
+    public int size() {
+        return size;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTimestamp(int row) {
+        return timestamps[row];
+    }
+
+    public double getPrice(int row) {
+        return prices[row];
+    }
+
+    public long getVolume(int row) {
+        return volumes[row];
+    }
+
+    public double getPnl(int row) {
+        return pnls[row];
+    }
+
+    public int getTraderCode(int row) {
+        return traderCodes[row];
+    }
+
+    public int getSymbolCode(int row) {
+        return symbolCodes[row];
+    }
+
+    public int getDeskCode(int row) {
+        return deskCodes[row];
+    }
+
+    public int getSideCode(int row) {
+        return sideCodes[row];
+    }
+
+    public Dictionary getTraders() {
+        return traders;
+    }
+
+    public Dictionary getSymbols() {
+        return symbols;
+    }
+
+    public Dictionary getDesks() {
+        return desks;
+    }
+
+    public Dictionary getSides() {
+        return sides;
+    }
+
+    /**
+     * Incremental consumer of appended trades. Implementations must be O(1) per call -
+     * they run inside the store lock on the ingest path.
+     */
+    public interface Listener {
+        void onTrade(TradeStore store, int row);
+
+        void onClear(TradeStore store);
+    }
+
+    /**
+     * Result holder for scanTrader - reusable so a click does not allocate per call.
+     */
+    public static class TraderScan {
+        public double totalPnl;
+        public int tradeCount;
+        public int winCount;
+        public String topSymbol;
+
+        void reset() {
+            totalPnl = 0;
+            tradeCount = 0;
+            winCount = 0;
+            topSymbol = null;
+        }
+    }
+
+    /**
+     * String to dense int code mapping for a low-cardinality column.
+     */
+    public static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private volatile int count = 0;
+
+        synchronized int encode(String value) {
+            String key = value == null ? "" : value;
+            Integer code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+            int next = count;
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = key;
+            codes.put(key, next);
+            count = next + 1;
+            return next;
+        }
+
+        /**
+         * @return the code for value, or -1 if it has never been seen
+         */
+        public synchronized int lookup(String value) {
+            Integer code = codes.get(value == null ? "" : value);
+            return code != null ? code : -1;
+        }
+
+        public String decode(int code) {
+            return values[code];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        synchronized void clear() {
+            codes.clear();
+            values = new String[16];
+            count = 0;
+        }
+    }
+}
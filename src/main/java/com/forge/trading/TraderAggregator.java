@@ -0,0 +1,115 @@
+package com.forge.trading;
+
+import java.util.Arrays;
+
+/**
+ * Incrementally maintained per-trader metrics.
+ *
+ * Every trade appended to the TradeStore updates its trader's running P&L, trade count,
+ * win count and per-symbol counts in constant time, then publishes a fresh TraderMetrics
+ * snapshot. Readers (metric cards, chatbot) only ever read the published snapshot.
+ */
+public class TraderAggregator implements TradeStore.Listener {
+
+    private static final TraderAggregator INSTANCE = new TraderAggregator(TradeStore.getInstance());
+
+    private final TradeStore store;
+
+    // Indexed by trader dictionary code; only written from the store's ingest path
+    private volatile TraderState[] states = new TraderState[16];
+
+    public TraderAggregator(TradeStore store) {
+        this.store = store;
+        store.addListener(this);
+    }
+
+    public static TraderAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void onTrade(TradeStore store, int row) {
+        int traderCode = store.getTraderCode(row);
+        TraderState[] current = states;
+        if (traderCode >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, traderCode + 1));
+            states = current;
+        }
+
+        TraderState state = current[traderCode];
+        if (state == null) {
+            state = new TraderState(store.getTraders().decode(traderCode));
+            current[traderCode] = state;
+            states = current; // republish so readers see the new slot
+        }
+        state.apply(store, row);
+    }
+
+    @Override
+    public void onClear(TradeStore store) {
+        states = new TraderState[16];
+    }
+
+    /**
+     * @return the latest published metrics, or null if the trader has no trades
+     */
+    TraderMetrics getSnapshot(String trader) {
+        int traderCode = store.getTraders().lookup(trader);
+        TraderState[] current = states;
+        if (traderCode < 0 || traderCode >= current.length || current[traderCode] == null) {
+            return null;
+        }
+        return current[traderCode].snapshot;
+    }
+
+    /**
+     * @return the TradeStore version of the trader's latest trade, or -1 if none
+     */
+    long getVersion(String trader) {
+        TraderMetrics snapshot = getSnapshot(trader);
+        return snapshot != null ? snapshot.version : -1;
+    }
+
+    private static class TraderState {
+        final String traderName;
+        double totalPnl;
+        int tradeCount;
+        int winCount;
+        int[] symbolCounts = new int[16];
+        int topSymbolCode = -1;
+
+        volatile TraderMetrics snapshot;
+
+        TraderState(String traderName) {
+            this.traderName = traderName;
+        }
+
+        void apply(TradeStore store, int row) {
+            double pnl = store.getPnl(row);
+            totalPnl += pnl;
+            tradeCount++;
+            if (pnl > 0) {
+                winCount++;
+            }
+
+            // Counts only grow, so the leader can only be overtaken by the symbol just traded
+            int symbolCode = store.getSymbolCode(row);
+            if (symbolCode >= symbolCounts.length) {
+                symbolCounts = Arrays.copyOf(symbolCounts, Math.max(symbolCounts.length * 2, symbolCode + 1));
+            }
+            symbolCounts[symbolCode]++;
+            if (topSymbolCode < 0 || symbolCounts[symbolCode] > symbolCounts[topSymbolCode]) {
+                topSymbolCode = symbolCode;
+            }
+
+            TraderMetrics metrics = new TraderMetrics();
+            metrics.traderName = traderName;
+            metrics.totalPnl = totalPnl;
+            metrics.tradeCount = tradeCount;
+            metrics.winRate = winCount * 100.0 / tradeCount;
+            metrics.topSymbol = store.getSymbols().decode(topSymbolCode);
+            metrics.version = store.getVersion();
+            snapshot = metrics;
+        }
+    }
+}
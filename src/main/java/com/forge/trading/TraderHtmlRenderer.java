@@ -0,0 +1,400 @@
+package com.forge.trading;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled renderer for the trader metric cards shown in Html1.
+ *
+ * The template is split into static chunks and value slots once at class load. Rendering
+ * appends the chunks and formatted values into a per-thread StringBuilder that is reused
+ * across calls, using hand-written number formatting instead of String.format.
+ *
+ * Apart from the returned String (about 3 KB of chars) a render avoids the per-call garbage
+ * of the old String.format version: no format-string parsing, no boxed doubles, no
+ * upper-cased copy of the trader name. Numbers close to a rounding tie still fall back to
+ * BigDecimal so the output matches String.format exactly.
+ */
+final class TraderHtmlRenderer {
+
+    private static final String TEMPLATE =
+        "<style>\n" +
+        "    .metrics-container {\n" +
+        "        position: relative;\n" +
+        "        width: 100%;\n" +
+        "        height: 100%;\n" +
+        "        min-width: 600px;\n" +
+        "        min-height: 400px;\n" +
+        "        background-color: #f8f9fa;\n" +
+        "        font-family: Arial, sans-serif;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .trader-header {\n" +
+        "        position: absolute;\n" +
+        "        top: 2%;\n" +
+        "        left: 0;\n" +
+        "        right: 0;\n" +
+        "        text-align: center;\n" +
+        "        font-size: 24px;\n" +
+        "        font-weight: bold;\n" +
+        "        color: #007bff;\n" +
+        "        border-bottom: 2px solid #007bff;\n" +
+        "        padding-bottom: 10px;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .metric-card {\n" +
+        "        position: absolute;\n" +
+        "        background: white;\n" +
+        "        border-radius: 12px;\n" +
+        "        box-shadow: 0 4px 8px rgba(0,0,0,0.15);\n" +
+        "        border-left: 6px solid #007bff;\n" +
+        "        width: 45%;\n" +
+        "        height: 35%;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .card-1 { top: 15%; left: 2.5%; border-left-color: #007bff; }\n" +
+        "    .card-2 { top: 15%; right: 2.5%; }\n" +
+        "    .card-3 { bottom: 10%; left: 2.5%; border-left-color: #dc3545; }\n" +
+        "    .card-4 { bottom: 10%; right: 2.5%; border-left-color: #28a745; }\n" +
+        "    \n" +
+        "    .metric-title {\n" +
+        "        position: absolute;\n" +
+        "        top: 25%;\n" +
+        "        left: 0;\n" +
+        "        right: 0;\n" +
+        "        font-size: 16px;\n" +
+        "        color: #6c757d;\n" +
+        "        font-weight: bold;\n" +
+        "        text-transform: uppercase;\n" +
+        "        text-align: center;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .metric-value {\n" +
+        "        position: absolute;\n" +
+        "        top: 55%;\n" +
+        "        left: 0;\n" +
+        "        right: 0;\n" +
+        "        font-size: 32px;\n" +
+        "        font-weight: bold;\n" +
+        "        color: #212529;\n" +
+        "        text-align: center;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .window-strip {\n" +
+        "        position: absolute;\n" +
+        "        bottom: 2%;\n" +
+        "        left: 2.5%;\n" +
+        "        right: 2.5%;\n" +
+        "        font-size: 13px;\n" +
+        "        color: #6c757d;\n" +
+        "        text-align: center;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .positive { color: #28a745; }\n" +
+        "    .negative { color: #dc3545; }\n" +
+        "</style>\n" +
+        "\n" +
+        "<div class=\"metrics-container\">\n" +
+        "    <div class=\"trader-header\">{{TRADER}} PERFORMANCE</div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-1\">\n" +
+        "        <div class=\"metric-title\">TOTAL P&L</div>\n" +
+        "        <div class=\"metric-value {{PNL_CLASS}}\">{{PNL}}</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-2\">\n" +
+        "        <div class=\"metric-title\">TRADES</div>\n" +
+        "        <div class=\"metric-value\">{{TRADES}}</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-3\">\n" +
+        "        <div class=\"metric-title\">TOP SYMBOL</div>\n" +
+        "        <div class=\"metric-value\">{{TOP_SYMBOL}}</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-4\">\n" +
+        "        <div class=\"metric-title\">WIN RATE</div>\n" +
+        "        <div class=\"metric-value\">{{WIN_RATE}}%</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"window-strip\">{{WINDOWS}}</div>\n" +
+        "</div>";
+
+    // Html1's template in the layout - the overview RESET_DASHBOARD puts back
+    static final String OVERVIEW_HTML =
+        "<style>\n" +
+        "    .metrics-container {\n" +
+        "        position: relative;\n" +
+        "        width: 100%;\n" +
+        "        height: 100%;\n" +
+        "        min-width: 600px;\n" +
+        "        min-height: 400px;\n" +
+        "        background-color: #f8f9fa;\n" +
+        "        font-family: Arial, sans-serif;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .metric-card {\n" +
+        "        position: absolute;\n" +
+        "        background: white;\n" +
+        "        border-radius: 12px;\n" +
+        "        box-shadow: 0 4px 8px rgba(0,0,0,0.15);\n" +
+        "        border-left: 6px solid #007bff;\n" +
+        "        width: 45%;\n" +
+        "        height: 40%;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .card-1 { top: 5%; left: 2.5%; border-left-color: #28a745; }\n" +
+        "    .card-2 { top: 5%; right: 2.5%; }\n" +
+        "    .card-3 { bottom: 5%; left: 2.5%; border-left-color: #28a745; }\n" +
+        "    .card-4 { bottom: 5%; right: 2.5%; border-left-color: #dc3545; }\n" +
+        "    \n" +
+        "    .metric-title {\n" +
+        "        position: absolute;\n" +
+        "        top: 25%;\n" +
+        "        left: 0;\n" +
+        "        right: 0;\n" +
+        "        font-size: 16px;\n" +
+        "        color: #6c757d;\n" +
+        "        font-weight: bold;\n" +
+        "        text-transform: uppercase;\n" +
+        "        text-align: center;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .metric-value {\n" +
+        "        position: absolute;\n" +
+        "        top: 55%;\n" +
+        "        left: 0;\n" +
+        "        right: 0;\n" +
+        "        font-size: 36px;\n" +
+        "        font-weight: bold;\n" +
+        "        color: #212529;\n" +
+        "        text-align: center;\n" +
+        "    }\n" +
+        "    \n" +
+        "    .positive { color: #28a745; }\n" +
+        "    .negative { color: #dc3545; }\n" +
+        "</style>\n" +
+        "\n" +
+        "<div class=\"metrics-container\">\n" +
+        "    <div class=\"metric-card card-1\">\n" +
+        "        <div class=\"metric-title\">TOTAL P&L</div>\n" +
+        "        <div class=\"metric-value positive\">+$8,247</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-2\">\n" +
+        "        <div class=\"metric-title\">TOTAL TRADES</div>\n" +
+        "        <div class=\"metric-value\">1,000</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-3\">\n" +
+        "        <div class=\"metric-title\">TOP TRADER</div>\n" +
+        "        <div class=\"metric-value\">Mike Chen</div>\n" +
+        "    </div>\n" +
+        "    \n" +
+        "    <div class=\"metric-card card-4\">\n" +
+        "        <div class=\"metric-title\">WIN RATE</div>\n" +
+        "        <div class=\"metric-value\">67%</div>\n" +
+        "    </div>\n" +
+        "</div>";
+
+    // Shown instead of zeroed cards until the trade store has been loaded
+    static final String NO_DATA_HTML =
+        "<div style='padding: 20px; text-align: center; font-family: Arial; color: #666;'>" +
+        "No trade data loaded - waiting for the trades datamodel</div>";
+
+    // Value slots, in the order they can appear in the template
+    private static final String[] SLOT_NAMES = { "TRADER", "PNL_CLASS", "PNL", "TRADES", "TOP_SYMBOL", "WIN_RATE", "WINDOWS" };
+    private static final int TRADER = 0;
+    private static final int PNL_CLASS = 1;
+    private static final int PNL = 2;
+    private static final int TRADES = 3;
+    private static final int TOP_SYMBOL = 4;
+    private static final int WIN_RATE = 5;
+    private static final int WINDOWS = 6;
+
+    // chunks[i] is emitted before slots[i]; the final chunk trails the last slot
+    private static final String[] CHUNKS;
+    private static final int[] SLOTS;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(TEMPLATE.length() + 256);
+        }
+    };
+
+    // Cached - values() copies the array on every call
+    private static final RollingWindows.Window[] WINDOW_VALUES = RollingWindows.Window.values();
+
+    private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L, 10000L };
+
+    static {
+        List<String> chunks = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = TEMPLATE.indexOf("{{", pos);
+            if (open < 0) {
+                break;
+            }
+            int close = TEMPLATE.indexOf("}}", open);
+            chunks.add(TEMPLATE.substring(pos, open));
+            slots.add(slotIndex(TEMPLATE.substring(open + 2, close)));
+            pos = close + 2;
+        }
+        chunks.add(TEMPLATE.substring(pos));
+
+        CHUNKS = chunks.toArray(new String[0]);
+        SLOTS = new int[slots.size()];
+        for (int i = 0; i < SLOTS.length; i++) {
+            SLOTS[i] = slots.get(i);
+        }
+    }
+
+    private TraderHtmlRenderer() {
+    }
+
+    private static int slotIndex(String name) {
+        for (int i = 0; i < SLOT_NAMES.length; i++) {
+            if (SLOT_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unknown template slot: " + name);
+    }
+
+    /**
+     * Renders the full metric cards HTML.
+     */
+    static String render(TraderMetrics metrics) {
+        StringBuilder buffer = fill(metrics);
+        return buffer.toString();
+    }
+
+    /**
+     * Renders the cards and returns at most maxChars of the result, without building the full String.
+     */
+    static String renderPreview(TraderMetrics metrics, int maxChars) {
+        StringBuilder buffer = fill(metrics);
+        if (buffer.length() <= maxChars) {
+            return buffer.toString();
+        }
+        return buffer.substring(0, maxChars) + "...";
+    }
+
+    private static StringBuilder fill(TraderMetrics metrics) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        for (int i = 0; i < SLOTS.length; i++) {
+            buffer.append(CHUNKS[i]);
+            appendSlot(buffer, SLOTS[i], metrics);
+        }
+        buffer.append(CHUNKS[CHUNKS.length - 1]);
+        return buffer;
+    }
+
+    private static void appendSlot(StringBuilder buffer, int slot, TraderMetrics metrics) {
+        switch (slot) {
+            case TRADER:
+                appendUpperCase(buffer, metrics.traderName);
+                break;
+            case PNL_CLASS:
+                buffer.append(metrics.totalPnl >= 0 ? "positive" : "negative");
+                break;
+            case PNL:
+                if (metrics.totalPnl >= 0) {
+                    buffer.append('+');
+                }
+                buffer.append('$');
+                appendFixed(buffer, Math.abs(metrics.totalPnl), 2);
+                break;
+            case TRADES:
+                buffer.append(metrics.tradeCount);
+                break;
+            case TOP_SYMBOL:
+                buffer.append(metrics.topSymbol);
+                break;
+            case WIN_RATE:
+                appendFixed(buffer, metrics.winRate, 1);
+                break;
+            case WINDOWS:
+                appendWindows(buffer, metrics);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Appends e.g. "1m +$120.00 / 3 trades / 66.7% win | 5m ...", or nothing if windows are not tracked.
+     */
+    private static void appendWindows(StringBuilder buffer, TraderMetrics metrics) {
+        if (metrics.windowPnl == null) {
+            return;
+        }
+        for (RollingWindows.Window window : WINDOW_VALUES) {
+            int i = window.ordinal();
+            if (i > 0) {
+                buffer.append(" | ");
+            }
+            buffer.append(window.label).append(' ').append(metrics.windowPnl[i] >= 0 ? "+$" : "-$");
+            appendFixed(buffer, Math.abs(metrics.windowPnl[i]), 2);
+            buffer.append(" / ").append(metrics.windowTrades[i]).append(metrics.windowTrades[i] == 1 ? " trade / " : " trades / ");
+            appendFixed(buffer, metrics.windowWinRate[i], 1);
+            buffer.append("% win");
+        }
+    }
+
+    private static void appendUpperCase(StringBuilder buffer, String text) {
+        if (text == null) {
+            buffer.append("null");
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            buffer.append(Character.toUpperCase(text.charAt(i)));
+        }
+    }
+
+    /**
+     * Appends value exactly as String.format("%.Nf") would: half-up on the shortest decimal
+     * form of the double, so 1.005 gives "1.01" where Math.round(1.005 * 100) gives 1.00.
+     * Values near a tie or too large for the fast path go through BigDecimal.
+     */
+    static void appendFixed(StringBuilder buffer, double value, int decimals) {
+        long scale = POWERS_OF_TEN[decimals];
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            buffer.append(String.format("%." + decimals + "f", value));
+            return;
+        }
+
+        if (value < 0) {
+            buffer.append('-');
+            value = -value;
+        }
+
+        double scaledValue = value * scale;
+        if (scaledValue < 1e9) {
+            long floor = (long) scaledValue;
+            double fraction = scaledValue - floor;
+            if (Math.abs(fraction - 0.5) > 1e-6) {
+                appendScaled(buffer, fraction > 0.5 ? floor + 1 : floor, scale);
+                return;
+            }
+        }
+        buffer.append(BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+    }
+
+    private static void appendScaled(StringBuilder buffer, long scaled, long scale) {
+        buffer.append(scaled / scale);
+        if (scale > 1) {
+            buffer.append('.');
+            long fraction = scaled % scale;
+            for (long pad = scale / 10; pad > fraction && pad > 1; pad /= 10) {
+                buffer.append('0');
+            }
+            buffer.append(fraction);
+        }
+    }
+}
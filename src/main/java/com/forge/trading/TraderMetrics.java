@@ -0,0 +1,21 @@
+package com.forge.trading;
+
+/**
+ * Point-in-time metrics for one trader, as shown on the metric cards.
+ * Instances published by TraderAggregator are never mutated after publication.
+ */
+class TraderMetrics {
+    String traderName;
+    double totalPnl;
+    int tradeCount;
+    double winRate;
+    String topSymbol;
+
+    // TradeStore version of the trader's latest trade, -1 if the trader has none
+    long version = -1;
+
+    // Last 1m/5m/1h values indexed by RollingWindows.Window ordinal; null when windows are not tracked
+    double[] windowPnl;
+    int[] windowTrades;
+    double[] windowWinRate;
+}
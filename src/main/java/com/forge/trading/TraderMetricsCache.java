@@ -0,0 +1,164 @@
+package com.forge.trading;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of computed TraderMetrics and their rendered card HTML.
+ *
+ * Entries are keyed by trader and stamped with the TradeStore version of that trader's
+ * latest trade. A new trade evicts only its own trader's entry (we listen on the store),
+ * and the version stamp guards against serving an entry that raced with an insert.
+ * With rolling windows attached, window values also change as time passes without any trade,
+ * so each entry is kept until the trader's oldest in-window bucket expires. A trader with no
+ * recent trades keeps its entry (and HTML) until it trades again.
+ */
+class TraderMetricsCache implements TradeStore.Listener {
+
+    private final TraderAggregator aggregator;
+    private final RollingWindows windows;
+    private final int maxEntries;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    TraderMetricsCache(TradeStore store, TraderAggregator aggregator, int maxEntries) {
+        this(store, aggregator, null, maxEntries);
+    }
+
+    /**
+     * @param windows fills the metrics' window fields, or null to leave them unset
+     */
+    TraderMetricsCache(TradeStore store, TraderAggregator aggregator, RollingWindows windows, final int maxEntries) {
+        this.aggregator = aggregator;
+        this.windows = windows;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TraderMetricsCache.Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        store.addListener(this);
+    }
+
+    /**
+     * Returns the cached entry for trader, computing it on a miss.
+     */
+    Entry get(String trader) {
+        long version = aggregator.getVersion(trader);
+        long now = windows != null ? windows.currentTimeMillis() : 0;
+        synchronized (entries) {
+            Entry entry = entries.get(trader);
+            if (entry != null && entry.version == version && now < entry.validUntilMillis) {
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+
+        misses.incrementAndGet();
+        TraderMetrics metrics = aggregator.getSnapshot(trader);
+        if (metrics == null) {
+            metrics = new TraderMetrics();
+            metrics.traderName = trader;
+            metrics.topSymbol = "N/A";
+        }
+        long validUntilMillis = Long.MAX_VALUE;
+        if (windows != null) {
+            RollingWindows.Snapshot snapshot = windows.getTrader(trader);
+            metrics = withWindows(metrics, snapshot);
+            validUntilMillis = snapshot.validUntilMillis;
+        }
+
+        Entry entry = new Entry(metrics, validUntilMillis);
+        synchronized (entries) {
+            entries.put(trader, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return a copy of metrics (published snapshots are never mutated) with the window fields set
+     */
+    private static TraderMetrics withWindows(TraderMetrics metrics, RollingWindows.Snapshot snapshot) {
+        TraderMetrics copy = new TraderMetrics();
+        copy.traderName = metrics.traderName;
+        copy.totalPnl = metrics.totalPnl;
+        copy.tradeCount = metrics.tradeCount;
+        copy.winRate = metrics.winRate;
+        copy.topSymbol = metrics.topSymbol;
+        copy.version = metrics.version;
+        copy.windowPnl = snapshot.pnl;
+        copy.windowTrades = snapshot.trades;
+        copy.windowWinRate = new double[snapshot.trades.length];
+        for (RollingWindows.Window window : RollingWindows.Window.values()) {
+            copy.windowWinRate[window.ordinal()] = snapshot.getWinRate(window);
+        }
+        return copy;
+    }
+
+    @Override
+    public void onTrade(TradeStore store, int row) {
+        String trader = store.getTraders().decode(store.getTraderCode(row));
+        synchronized (entries) {
+            if (entries.remove(trader) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void onClear(TradeStore store) {
+        synchronized (entries) {
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    String getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return String.format("Metrics cache: %d/%d entries | hits %d | misses %d | hit rate %.1f%% | evictions %d | invalidations %d",
+            size, maxEntries, hitCount, misses.get(), total == 0 ? 0.0 : hitCount * 100.0 / total,
+            evictions.get(), invalidations.get());
+    }
+
+    /**
+     * Metrics for one trader plus their lazily rendered HTML. Rendering is idempotent,
+     * so concurrent first renders may both run but publish identical results.
+     */
+    static class Entry {
+        final TraderMetrics metrics;
+        final long version;
+        final long validUntilMillis;
+        private volatile String html;
+
+        Entry(TraderMetrics metrics, long validUntilMillis) {
+            this.metrics = metrics;
+            this.version = metrics.version;
+            this.validUntilMillis = validUntilMillis;
+        }
+
+        String getHtml() {
+            String result = html;
+            if (result == null) {
+                result = TraderHtmlRenderer.render(metrics);
+                html = result;
+            }
+            return result;
+        }
+    }
+}
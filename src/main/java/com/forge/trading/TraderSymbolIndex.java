@@ -0,0 +1,125 @@
+package com.forge.trading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Which symbols each trader has traded, and which traders each symbol, as bitsets.
+ *
+ * Row t of the trader index is a long[] bitset over symbol dictionary codes, row s of the
+ * symbol index a bitset over trader codes. A trade sets one bit in each, so the index is
+ * current after every append, and answering "symbols traded by X" costs one pass over a
+ * few words instead of a DISTINCT scan of the trades table.
+ */
+class TraderSymbolIndex implements TradeStore.Listener {
+
+    private final TradeStore store;
+
+    // Indexed by dictionary code; only written from the store's ingest path
+    private volatile long[][] symbolsByTrader = new long[16][];
+    private volatile long[][] tradersBySymbol = new long[16][];
+
+    TraderSymbolIndex(TradeStore store) {
+        this.store = store;
+        store.addListener(this);
+    }
+
+    @Override
+    public void onTrade(TradeStore store, int row) {
+        int trader = store.getTraderCode(row);
+        int symbol = store.getSymbolCode(row);
+        symbolsByTrader = set(symbolsByTrader, trader, symbol);
+        tradersBySymbol = set(tradersBySymbol, symbol, trader);
+    }
+
+    @Override
+    public void onClear(TradeStore store) {
+        symbolsByTrader = new long[16][];
+        tradersBySymbol = new long[16][];
+    }
+
+    /**
+     * Sets bit in index[key], growing the outer array or the row as needed.
+     *
+     * @return index, or its replacement if it had to grow
+     */
+    private static long[][] set(long[][] index, int key, int bit) {
+        if (key >= index.length) {
+            index = Arrays.copyOf(index, Math.max(index.length * 2, key + 1));
+        }
+        long[] bits = index[key];
+        int word = bit >>> 6;
+        if (bits == null || word >= bits.length) {
+            bits = bits == null ? new long[word + 1] : Arrays.copyOf(bits, Math.max(bits.length * 2, word + 1));
+            bits[word] |= 1L << bit;
+            index[key] = bits; // publish the filled row
+            return index;
+        }
+        bits[word] |= 1L << bit;
+        return index;
+    }
+
+    /**
+     * @return the symbols trader has traded in dictionary order, or null if the trader has no trades
+     */
+    List<String> getSymbols(String trader) {
+        return decode(symbolsByTrader, store.getTraders().lookup(trader), store.getSymbols());
+    }
+
+    /**
+     * @return the traders who have traded symbol in dictionary order, or null if nobody has
+     */
+    List<String> getTraders(String symbol) {
+        return decode(tradersBySymbol, store.getSymbols().lookup(symbol), store.getTraders());
+    }
+
+    boolean hasTraded(String trader, String symbol) {
+        int traderCode = store.getTraders().lookup(trader);
+        int symbolCode = store.getSymbols().lookup(symbol);
+        long[][] index = symbolsByTrader;
+        if (traderCode < 0 || symbolCode < 0 || traderCode >= index.length || index[traderCode] == null) {
+            return false;
+        }
+        long[] bits = index[traderCode];
+        int word = symbolCode >>> 6;
+        return word < bits.length && (bits[word] & (1L << symbolCode)) != 0;
+    }
+
+    /**
+     * WHERE fragment restricting a symbol-keyed table to trader's symbols, e.g. symbol IN ('AAPL','TSLA').
+     *
+     * @return the fragment, or null if trader has no trades in the store
+     */
+    String getSymbolWhereClause(String trader) {
+        List<String> symbols = getSymbols(trader);
+        if (symbols == null) {
+            return null;
+        }
+        StringBuilder where = new StringBuilder(16 + symbols.size() * 10);
+        where.append("symbol IN (");
+        for (int i = 0; i < symbols.size(); i++) {
+            if (i > 0) {
+                where.append(',');
+            }
+            where.append('\'').append(symbols.get(i).replace("'", "''")).append('\'');
+        }
+        return where.append(')').toString();
+    }
+
+    private static List<String> decode(long[][] index, int key, TradeStore.Dictionary values) {
+        if (key < 0 || key >= index.length || index[key] == null) {
+            return null;
+        }
+        long[] bits = index[key];
+        List<String> decoded = new ArrayList<>();
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                decoded.add(values.decode((word << 6) + Long.numberOfTrailingZeros(remaining)));
+                remaining &= remaining - 1;
+            }
+        }
+        return decoded;
+    }
+}
@@ -1,6 +1,5 @@
 package com.forge.trading;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.f1.ami.amicommon.customobjects.AmiScriptAccessible;
@@ -8,24 +7,13 @@ import com.f1.ami.amicommon.customobjects.AmiScriptAccessible;
 @AmiScriptAccessible(name = "TradingAiChatbot")
 public class TradingAiChatbot {
     
-    // Add conversation history for message stacking
-    private static List<ChatMessage> conversationHistory = new ArrayList<>();
+    // Per-session context: last suggested trader, intent and a 100-message history; idle sessions evicted
+    private static ChatSessionStore chatSessions = new ChatSessionStore(100, 30 * 60 * 1000L);
     
-    // Remember last suggested trader for context
-    private static String lastSuggestedTrader = null;
+    // Per-session conversation history for message stacking - a view over chatSessions
+    private static ChatHistoryStore chatHistory = new ChatHistoryStore(chatSessions);
     
-    // Helper class for chat messages
-    private static class ChatMessage {
-        String userInput;
-        String aiResponse;
-        String timestamp;
-        
-        ChatMessage(String userInput, String aiResponse) {
-            this.userInput = userInput;
-            this.aiResponse = aiResponse;
-            this.timestamp = new java.text.SimpleDateFormat("HH:mm").format(new java.util.Date());
-        }
-    }
+    private static final IntentMatcher intentMatcher = IntentMatcher.getInstance();
     
     @AmiScriptAccessible
     public TradingAiChatbot() {
@@ -46,38 +34,64 @@ public class TradingAiChatbot {
     
     @AmiScriptAccessible(name = "processChatMessage", params = {"userMessage"})
     public String processChatMessage(Object userMessage) {
+        return processChatMessageWithSession(userMessage, null);
+    }
+    
+    @AmiScriptAccessible(name = "processChatMessageWithSession", params = {"userMessage", "session"})
+    public String processChatMessageWithSession(Object userMessage, Object session) {
         try {
-            String message = userMessage.toString().toLowerCase();
+            // One pass finds every trader, symbol and command keyword in the message
+            IntentMatcher.Match match = intentMatcher.match(userMessage.toString());
+            String trader = match.getTrader();
+            ChatSessionStore.SessionState state = chatSessions.get(session);
+            state.recordIntent(match.getIntent());
             
-            // Simple command parsing for demo
-            if (message.contains("sarah jones") || message.contains("sarah")) {
+            // Keeps the original chatbot precedence: a trader without a profile is filtered straight away,
+            // then reset and help, then top performer, "who trades", profiled traders, volume and confirmations
+            String profile = trader != null ? getTraderProfile(trader) : null;
+            if (trader != null && profile == null) {
                 return "{\n" +
-                       "  \"message\": \"📊 Showing performance for Sarah Jones. I've updated all dashboard panels with their trading data.\",\n" +
+                       "  \"message\": \"📊 Showing performance for " + escapeJson(trader) + ". I've updated all dashboard panels with their trading data.\",\n" +
                        "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Sarah Jones\"\n" +
+                       "  \"trader\": \"" + escapeJson(trader) + "\"\n" +
                        "}";
-            } else if (message.contains("mike chen") || message.contains("mike")) {
+            } else if (match.has(IntentMatcher.Keyword.RESET)) {
                 return "{\n" +
-                       "  \"message\": \"📊 Showing performance for Mike Chen. I've updated all dashboard panels with their trading data.\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Mike Chen\"\n" +
+                       "  \"message\": \"🔄 Dashboard reset! Showing all traders and market data.\",\n" +
+                       "  \"command\": \"RESET_DASHBOARD\"\n" +
                        "}";
-            } else if (message.contains("lisa wang") || message.contains("lisa")) {
+            } else if (match.has(IntentMatcher.Keyword.HELP)) {
+                return getChatHelpMessage();
+            } else if (match.has(IntentMatcher.Keyword.TOP_PERFORMER)) {
+                state.suggest("Mike Chen");  // Remember for context
                 return "{\n" +
-                       "  \"message\": \"📊 Showing performance for Lisa Wang. I've updated all dashboard panels with their trading data.\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Lisa Wang\"\n" +
+                       "  \"message\": \"🏆 Mike Chen is currently our top performer with +$4,521 P&L. He specializes in tech/semiconductor trades.\\n\\nWould you like me to filter the dashboard to show his detailed performance?\"\n" +
                        "}";
-            } else if (message.contains("reset") || message.contains("clear") || message.contains("show all")) {
+            } else if (match.has(IntentMatcher.Keyword.WHO_TRADES) && match.getSymbols().contains("TSLA")) {
+                // "WHO TRADES TSLA?" - DEMO ESSENTIAL
                 return "{\n" +
-                       "  \"message\": \"🔄 Dashboard reset! Showing all traders and market data.\",\n" +
-                       "  \"command\": \"RESET_DASHBOARD\"\n" +
+                       "  \"message\": \"⚡ <strong>TSLA Traders:</strong><br><br>🚀 <strong>Sarah Jones</strong> - Growth specialist<br>⚡ <strong>Lisa Wang</strong> - Innovation/EV focus<br><br>Both are aggressive with high-growth names. Want to see their performance?\"\n" +
                        "}";
-            } else if (message.contains("help")) {
-                return getChatHelpMessage();
-            } else {
-                return getSmartChatResponse(message);
+            } else if (profile != null) {
+                state.suggest(trader);  // Remember for context
+                return "{\n" +
+                       "  \"message\": \"" + profile + "\"\n" +
+                       "}";
+            } else if (match.has(IntentMatcher.Keyword.VOLUME)) {
+                return "{\n" +
+                       "  \"message\": \"📊 Trading volume varies by trader and symbol. Mike Chen typically shows highest activity in semiconductor names. Want to see current volume leaders?\"\n" +
+                       "}";
+            } else if (match.isConfirmation()) {
+                // Use remembered context - taken atomically, so it is used at most once
+                String suggested = state.takeSuggestion();
+                if (suggested != null) {
+                    return getFilterTraderResponse(suggested);
+                }
+                return getPickTraderResponse();
+            } else if (match.has(IntentMatcher.Keyword.SHOW)) {
+                return getPickTraderResponse();
             }
+            return getDefaultChatResponse();
             
         } catch (Exception e) {
             return "{\n" +
@@ -86,178 +100,44 @@ public class TradingAiChatbot {
         }
     }
     
-    private String getSmartChatResponse(String message) {
-        // Simple demo-focused conversation patterns
-        
-        // TOP PERFORMER QUERIES  
-        if (message.contains("best") || message.contains("top performer") || message.contains("top trader") || message.contains("who's the")) {
-            lastSuggestedTrader = "Mike Chen";  // Remember for context
-            return "{\n" +
-                   "  \"message\": \"🏆 Mike Chen is currently our top performer with +$4,521 P&L. He specializes in tech/semiconductor trades.\\n\\nWould you like me to filter the dashboard to show his detailed performance?\"\n" +
-                   "}";
-        }
-        
-        // "WHO TRADES TSLA?" - DEMO ESSENTIAL
-        else if (message.contains("who trades") && (message.contains("TSLA") || message.contains("tesla"))) {
-            return "{\n" +
-                   "  \"message\": \"⚡ <strong>TSLA Traders:</strong><br><br>🚀 <strong>Sarah Jones</strong> - Growth specialist<br>⚡ <strong>Lisa Wang</strong> - Innovation/EV focus<br><br>Both are aggressive with high-growth names. Want to see their performance?\"\n" +
-                   "}";
-        }
-        
-        // DASHBOARD CONTROL COMMANDS
-        else if (message.contains("reset") || message.contains("clear") || message.contains("show all")) {
-            return "{\n" +
-                   "  \"message\": \"🔄 Resetting dashboard to show all traders and clearing any filters...\",\n" +
-                   "  \"command\": \"RESET_DASHBOARD\"\n" +
-                   "}";
-        }
-        
+    private String getTraderProfile(String trader) {
         // SPECIFIC TRADER QUERIES (enhanced with personalities)
-        else if (message.contains("john smith") || message.contains("john")) {
-            lastSuggestedTrader = "John Smith";  // Remember for context
-            return "{\n" +
-                   "  \"message\": \"👔 John Smith is our Big Tech specialist, focusing on AAPL, MSFT, and GOOGL. Steady performer with consistent volume.\\n\\nWould you like me to filter the dashboard to show John's detailed metrics?\"\n" +
-                   "}";
-        }
-        else if (message.contains("lisa wang") || message.contains("lisa")) {
-            lastSuggestedTrader = "Lisa Wang";  // Remember for context
-            return "{\n" +
-                   "  \"message\": \"🚀 Lisa Wang is our innovation trader - TSLA, META, NVDA are her specialties. She's aggressive with AI and EV stocks.\\n\\nShall I show you Lisa's detailed performance dashboard?\"\n" +
-                   "}";
-        }
-        else if (message.contains("tom brown") || message.contains("tom")) {
-            lastSuggestedTrader = "Tom Brown";  // Remember for context
-            return "{\n" +
-                   "  \"message\": \"💼 Tom Brown handles enterprise tech - AMZN, ORCL, INTC. More conservative approach but solid fundamentals.\\n\\nWant to see Tom's dashboard in detail?\"\n" +
-                   "}";
-        }
-        else if (message.contains("emma davis") || message.contains("emma")) {
-            lastSuggestedTrader = "Emma Davis";  // Remember for context
-            return "{\n" +
-                   "  \"message\": \"💎 Emma Davis focuses on mega-cap stability - AAPL, AMZN, MSFT. Strong risk-adjusted returns.\\n\\nShould I filter to show Emma's position details?\"\n" +
-                   "}";
-        }
-        
-        // VOLUME & TRADING ACTIVITY
-        else if (message.contains("volume") || message.contains("activity") || message.contains("busy")) {
-            return "{\n" +
-                   "  \"message\": \"📊 Trading volume varies by trader and symbol. Mike Chen typically shows highest activity in semiconductor names. Want to see current volume leaders?\"\n" +
-                   "}";
-        }
-        
-        // CONFIRMATION RESPONSES FOR FILTERING
-        else if (message.contains("yes") || message.contains("sure") || message.contains("ok") || message.contains("please")) {
-            // Use remembered context first, then check for explicit names
-            if (lastSuggestedTrader != null) {
-                String trader = lastSuggestedTrader;
-                lastSuggestedTrader = null; // Clear after use
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show " + trader + "'s performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"" + trader + "\"\n" +
-                       "}";
-            }
-            // Fallback to checking for explicit names in message
-            else if (message.contains("mike") || message.contains("chen")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Mike Chen's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Mike Chen\"\n" +
-                       "}";
-            } else if (message.contains("sarah") || message.contains("jones")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Sarah Jones' performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Sarah Jones\"\n" +
-                       "}";
-            } else if (message.contains("lisa") || message.contains("wang")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Lisa Wang's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Lisa Wang\"\n" +
-                       "}";
-            } else if (message.contains("john") || message.contains("smith")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show John Smith's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"John Smith\"\n" +
-                       "}";
-            } else if (message.contains("tom") || message.contains("brown")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Tom Brown's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Tom Brown\"\n" +
-                       "}";
-            } else if (message.contains("emma") || message.contains("davis")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Emma Davis' performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Emma Davis\"\n" +
-                       "}";
-            } else {
-                return "{\n" +
-                       "  \"message\": \"I'd be happy to filter the dashboard! Just let me know which trader you'd like to see: Mike Chen, Sarah Jones, Lisa Wang, John Smith, Tom Brown, or Emma Davis.\"\n" +
-                       "}";
-            }
-        }
-        
-        // DIRECT FILTER REQUESTS
-        else if (message.contains("show me") || message.contains("filter")) {
-            // Handle direct "show me [trader]" requests
-            if (message.contains("mike") || message.contains("chen")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Mike Chen's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Mike Chen\"\n" +
-                       "}";
-            } else if (message.contains("sarah") || message.contains("jones")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Sarah Jones' performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Sarah Jones\"\n" +
-                       "}";
-            } else if (message.contains("lisa") || message.contains("wang")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Lisa Wang's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Lisa Wang\"\n" +
-                       "}";
-            } else if (message.contains("john") || message.contains("smith")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show John Smith's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"John Smith\"\n" +
-                       "}";
-            } else if (message.contains("tom") || message.contains("brown")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Tom Brown's performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Tom Brown\"\n" +
-                       "}";
-            } else if (message.contains("emma") || message.contains("davis")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Filtering dashboard to show Emma Davis' performance...\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Emma Davis\"\n" +
-                       "}";
-            } else {
-                return "{\n" +
-                       "  \"message\": \"I'd be happy to filter the dashboard! Just let me know which trader you'd like to see: Mike Chen, Sarah Jones, Lisa Wang, John Smith, Tom Brown, or Emma Davis.\"\n" +
-                       "}";
-            }
-        }
-        
-        // HELP SYSTEM - SIMPLE
-        else if (message.contains("help") || message.contains("what can you do") || message.contains("examples")) {
-            return getChatHelpMessage();
+        switch (trader) {
+            case "John Smith":
+                return "👔 John Smith is our Big Tech specialist, focusing on AAPL, MSFT, and GOOGL. Steady performer with consistent volume.\\n\\nWould you like me to filter the dashboard to show John's detailed metrics?";
+            case "Tom Brown":
+                return "💼 Tom Brown handles enterprise tech - AMZN, ORCL, INTC. More conservative approach but solid fundamentals.\\n\\nWant to see Tom's dashboard in detail?";
+            case "Emma Davis":
+                return "💎 Emma Davis focuses on mega-cap stability - AAPL, AMZN, MSFT. Strong risk-adjusted returns.\\n\\nShould I filter to show Emma's position details?";
+            default:
+                return null;
         }
-        
+    }
+    
+    private String getFilterTraderResponse(String trader) {
+        String possessive = trader.endsWith("s") ? trader + "'" : trader + "'s";
+        return "{\n" +
+               "  \"message\": \"📊 Filtering dashboard to show " + escapeJson(possessive) + " performance...\",\n" +
+               "  \"command\": \"FILTER_TRADER\",\n" +
+               "  \"trader\": \"" + escapeJson(trader) + "\"\n" +
+               "}";
+    }
+    
+    private static String escapeJson(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
+    }
+    
+    private String getPickTraderResponse() {
+        return "{\n" +
+               "  \"message\": \"I'd be happy to filter the dashboard! Just let me know which trader you'd like to see: Mike Chen, Sarah Jones, Lisa Wang, John Smith, Tom Brown, or Emma Davis.\"\n" +
+               "}";
+    }
+    
+    private String getDefaultChatResponse() {
         // DEFAULT INTELLIGENT RESPONSE
-        else {
-            return "{\n" +
-                   "  \"message\": \"🤖 I can help you analyze our trading team! Try asking about:\\n• Specific traders: 'How is Mike Chen doing?'\\n• Stock focus: 'Who trades TSLA?'\\n• Performance: 'Who's the top performer?'\\n• Risk: 'Show me risk metrics'\\n• Or just say 'help' for more options\"\n" +
-                   "}";
-        }
+        return "{\n" +
+               "  \"message\": \"🤖 I can help you analyze our trading team! Try asking about:\\n• Specific traders: 'How is Mike Chen doing?'\\n• Stock focus: 'Who trades TSLA?'\\n• Performance: 'Who's the top performer?'\\n• Risk: 'Show me risk metrics'\\n• Or just say 'help' for more options\"\n" +
+               "}";
     }
     
     private String getChatHelpMessage() {
@@ -271,8 +151,140 @@ public class TradingAiChatbot {
                "}";
     }
     
+    // Only the newest pairs are rendered; "show earlier" adds a page at a time, getChatPage fetches any page
+    private static final int CHAT_WINDOW_SIZE = 20;
+    
+    // Chat page split around the message count and the messages - the <style> block is never re-formatted
+    private static final String CHAT_PAGE_HEAD =
+        "<!DOCTYPE html>\n" +
+        "<html>\n" +
+        "<head>\n" +
+        "    <style>\n" +
+        "        body {\n" +
+        "            margin: 0;\n" +
+        "            padding: 0;\n" +
+        "            font-family: Arial, sans-serif;\n" +
+        "            background: #f8f9fa;\n" +
+        "            width: 100%;\n" +
+        "            height: 100%;\n" +
+        "            overflow: hidden;\n" +
+        "        }\n" +
+        "        \n" +
+        "        .chat-container {\n" +
+        "            position: absolute;\n" +
+        "            top: 0;\n" +
+        "            left: 0;\n" +
+        "            width: 100%;\n" +
+        "            height: 100%;\n" +
+        "        }\n" +
+        "        \n" +
+        "        .chat-header {\n" +
+        "            position: absolute;\n" +
+        "            top: 0;\n" +
+        "            left: 0;\n" +
+        "            width: 100%;\n" +
+        "            height: 40px;\n" +
+        "            background: #fff;\n" +
+        "            border-bottom: 2px solid #28a745;\n" +
+        "            color: #333;\n" +
+        "            text-align: center;\n" +
+        "            font-weight: bold;\n" +
+        "            font-size: 14px;\n" +
+        "            line-height: 40px;\n" +
+        "            box-sizing: border-box;\n" +
+        "        }\n" +
+        "        \n" +
+        "        .messages-area {\n" +
+        "            position: absolute;\n" +
+        "            top: 50px;\n" +
+        "            left: 10px;\n" +
+        "            right: 10px;\n" +
+        "            bottom: 10px;\n" +
+        "            overflow-y: auto;\n" +
+        "            box-sizing: border-box;\n" +
+        "            padding: 10px 0;\n" +
+        "            display: grid;\n" +
+        "            grid-template-columns: 1fr;\n" +
+        "            grid-auto-rows: min-content;\n" +
+        "            gap: 5px;\n" +
+        "        }\n" +
+        "        \n" +
+        "        .message-pair {\n" +
+        "            position: relative;\n" +
+        "            width: 100%;\n" +
+        "            /* Dynamic sizing via inline styles */\n" +
+        "        }\n" +
+        "        \n" +
+        "        .user-message {\n" +
+        "            position: absolute;\n" +
+        "            top: 5px;\n" +
+        "            right: 0;\n" +
+        "            width: 70%;\n" +
+        "            padding: 12px 16px;\n" +
+        "            background: #28a745;\n" +
+        "            color: white;\n" +
+        "            border-radius: 12px;\n" +
+        "            border-bottom-right-radius: 4px;\n" +
+        "            box-sizing: border-box;\n" +
+        "            word-wrap: break-word;\n" +
+        "            line-height: 1.4;\n" +
+        "            font-size: 14px;\n" +
+        "        }\n" +
+        "        \n" +
+        "        .ai-message {\n" +
+        "            position: absolute;\n" +
+        "            left: 0;\n" +
+        "            width: 70%;\n" +
+        "            padding: 12px 16px;\n" +
+        "            background: #fff;\n" +
+        "            color: #333;\n" +
+        "            border: 1px solid #dee2e6;\n" +
+        "            border-radius: 12px;\n" +
+        "            border-bottom-left-radius: 4px;\n" +
+        "            box-sizing: border-box;\n" +
+        "            word-wrap: break-word;\n" +
+        "            line-height: 1.4;\n" +
+        "            font-size: 14px;\n" +
+        "            box-shadow: 0 1px 3px rgba(0,0,0,0.1);\n" +
+        "            overflow-y: auto;\n" +
+        "            /* Dynamic positioning and sizing via inline styles */\n" +
+        "        }\n" +
+        "        \n" +
+        "        .ai-label {\n" +
+        "            color: #28a745;\n" +
+        "            font-weight: bold;\n" +
+        "        }\n" +
+        "        \n" +
+        "        .older-messages {\n" +
+        "            text-align: center;\n" +
+        "            color: #6c757d;\n" +
+        "            font-size: 12px;\n" +
+        "            padding: 4px 0 12px;\n" +
+        "        }\n" +
+        "    </style>\n" +
+        "</head>\n" +
+        "<body>\n" +
+        "    <div class=\"chat-container\">\n" +
+        "        <div class=\"chat-header\">\n" +
+        "            🤖 AI Trading Assistant (";
+    private static final String CHAT_PAGE_MIDDLE =
+        " messages)\n" +
+        "        </div>\n" +
+        "        \n" +
+        "        <div class=\"messages-area\">\n";
+    private static final String CHAT_PAGE_TAIL =
+        "        </div>\n" +
+        "    </div>\n" +
+        "</body>\n" +
+        "</html>";
+    
     @AmiScriptAccessible(name = "generateChatHtml", params = {"userInput", "chatResponse"})
     public String generateChatHtml(Object userInput, Object chatResponse) {
+        return generateChatHtmlWithSession(userInput, chatResponse, null);
+    }
+    
+    @AmiScriptAccessible(name = "generateChatHtmlWithSession", params = {"userInput", "chatResponse", "session"})
+    public String generateChatHtmlWithSession(Object userInput, Object chatResponse, Object session) {
         try {
             String userMessage = userInput.toString();
             String jsonResponse = chatResponse.toString();
@@ -281,155 +293,10 @@ public class TradingAiChatbot {
             System.out.println("💬 Generating chat HTML for: " + userMessage);
             System.out.println("🤖 AI Response: " + aiMessage);
             
-            // Add to conversation history
-            conversationHistory.add(new ChatMessage(userMessage, aiMessage));
-            
-            // Build all messages HTML with dynamic sizing based on content
-            StringBuilder messagesHtml = new StringBuilder();
-            
-            for (ChatMessage msg : conversationHistory) {
-                // Calculate dynamic heights based on message content
-                int userHeight = estimateMessageHeight(msg.userInput);
-                int aiHeight = estimateMessageHeight(msg.aiResponse);
-                int aiTopPosition = Math.max(userHeight + 15, 60); // User message + padding, min 60px
-                int totalHeight = aiTopPosition + aiHeight + 20; // Actual space needed: ai start + ai height + padding
-                int containerMargin = 25; // Consistent spacing between pairs
-                
-                messagesHtml.append(String.format(
-                    "            <div class=\"message-pair\" style=\"min-height: %dpx; margin-bottom: %dpx;\">\n" +
-                    "                <div class=\"user-message\">\n" +
-                    "                    %s\n" +
-                    "                </div>\n" +
-                    "                \n" +
-                    "                <div class=\"ai-message\" style=\"top: %dpx; max-height: %dpx;\">\n" +
-                    "                    <span class=\"ai-label\">🤖</span> %s\n" +
-                    "                </div>\n" +
-                    "            </div>\n",
-                    totalHeight,
-                    containerMargin,
-                    escapeHtml(msg.userInput),
-                    aiTopPosition,
-                    aiHeight + 20, // AI message max height with padding
-                    msg.aiResponse  // Don't escape AI response - it contains intentional HTML
-                ));
-            }
-            
-            return String.format(
-                "<!DOCTYPE html>\n" +
-                "<html>\n" +
-                "<head>\n" +
-                "    <style>\n" +
-                "        body {\n" +
-                "            margin: 0;\n" +
-                "            padding: 0;\n" +
-                "            font-family: Arial, sans-serif;\n" +
-                "            background: #f8f9fa;\n" +
-                "            width: 100%%;\n" +
-                "            height: 100%%;\n" +
-                "            overflow: hidden;\n" +
-                "        }\n" +
-                "        \n" +
-                "        .chat-container {\n" +
-                "            position: absolute;\n" +
-                "            top: 0;\n" +
-                "            left: 0;\n" +
-                "            width: 100%%;\n" +
-                "            height: 100%%;\n" +
-                "        }\n" +
-                "        \n" +
-                "        .chat-header {\n" +
-                "            position: absolute;\n" +
-                "            top: 0;\n" +
-                "            left: 0;\n" +
-                "            width: 100%%;\n" +
-                "            height: 40px;\n" +
-                "            background: #fff;\n" +
-                "            border-bottom: 2px solid #28a745;\n" +
-                "            color: #333;\n" +
-                "            text-align: center;\n" +
-                "            font-weight: bold;\n" +
-                "            font-size: 14px;\n" +
-                "            line-height: 40px;\n" +
-                "            box-sizing: border-box;\n" +
-                "        }\n" +
-                "        \n" +
-                "        .messages-area {\n" +
-                "            position: absolute;\n" +
-                "            top: 50px;\n" +
-                "            left: 10px;\n" +
-                "            right: 10px;\n" +
-                "            bottom: 10px;\n" +
-                "            overflow-y: auto;\n" +
-                "            box-sizing: border-box;\n" +
-                "            padding: 10px 0;\n" +
-                "            display: grid;\n" +
-                "            grid-template-columns: 1fr;\n" +
-                "            grid-auto-rows: min-content;\n" +
-                "            gap: 5px;\n" +
-                "        }\n" +
-                "        \n" +
-                "        .message-pair {\n" +
-                "            position: relative;\n" +
-                "            width: 100%%;\n" +
-                "            /* Dynamic sizing via inline styles */\n" +
-                "        }\n" +
-                "        \n" +
-                "        .user-message {\n" +
-                "            position: absolute;\n" +
-                "            top: 5px;\n" +
-                "            right: 0;\n" +
-                "            width: 70%%;\n" +
-                "            padding: 12px 16px;\n" +
-                "            background: #28a745;\n" +
-                "            color: white;\n" +
-                "            border-radius: 12px;\n" +
-                "            border-bottom-right-radius: 4px;\n" +
-                "            box-sizing: border-box;\n" +
-                "            word-wrap: break-word;\n" +
-                "            line-height: 1.4;\n" +
-                "            font-size: 14px;\n" +
-                "        }\n" +
-                "        \n" +
-                "        .ai-message {\n" +
-                "            position: absolute;\n" +
-                "            left: 0;\n" +
-                "            width: 70%%;\n" +
-                "            padding: 12px 16px;\n" +
-                "            background: #fff;\n" +
-                "            color: #333;\n" +
-                "            border: 1px solid #dee2e6;\n" +
-                "            border-radius: 12px;\n" +
-                "            border-bottom-left-radius: 4px;\n" +
-                "            box-sizing: border-box;\n" +
-                "            word-wrap: break-word;\n" +
-                "            line-height: 1.4;\n" +
-                "            font-size: 14px;\n" +
-                "            box-shadow: 0 1px 3px rgba(0,0,0,0.1);\n" +
-                "            overflow-y: auto;\n" +
-                "            /* Dynamic positioning and sizing via inline styles */\n" +
-                "        }\n" +
-                "        \n" +
-                "        .ai-label {\n" +
-                "            color: #28a745;\n" +
-                "            font-weight: bold;\n" +
-                "        }\n" +
-                "    </style>\n" +
-                "</head>\n" +
-                "<body>\n" +
-                "    <div class=\"chat-container\">\n" +
-                "        <div class=\"chat-header\">\n" +
-                "            🤖 AI Trading Assistant (%d messages)\n" +
-                "        </div>\n" +
-                "        \n" +
-                "        <div class=\"messages-area\">\n" +
-                "%s" +
-                "        </div>\n" +
-                "    </div>\n" +
-                "</body>\n" +
-                "</html>",
-                conversationHistory.size(),
-                messagesHtml.toString()
-            );
+            // Add to conversation history - the message pair is rendered and measured once, here
+            ChatHistoryStore.SessionHistory history = chatHistory.get(session);
+            history.append(createMessage(userMessage, aiMessage));
+            return renderChatPage(history);
             
         } catch (Exception e) {
             System.out.println("❌ Error generating chat HTML: " + e.getMessage());
@@ -437,49 +304,97 @@ public class TradingAiChatbot {
         }
     }
     
-    public String extractMessageFromJson(String jsonResponse) {
-        // Simple JSON message extraction
-        try {
-            // Look for "message": "content" pattern
-            int messageStart = jsonResponse.indexOf("\"message\":");
-            if (messageStart == -1) {
-                return jsonResponse; // Return as-is if no JSON message field
-            }
-            
-            // Find the start of the message value (after the colon and optional whitespace)
-            int valueStart = jsonResponse.indexOf("\"", messageStart + 10);
-            if (valueStart == -1) {
-                return jsonResponse;
-            }
-            
-            // Find the end of the message value
-            int valueEnd = valueStart + 1;
-            while (valueEnd < jsonResponse.length()) {
-                char c = jsonResponse.charAt(valueEnd);
-                if (c == '"' && jsonResponse.charAt(valueEnd - 1) != '\\') {
-                    break; // Found unescaped quote
-                }
-                valueEnd++;
-            }
-            
-            if (valueEnd >= jsonResponse.length()) {
-                return jsonResponse; // Malformed JSON
-            }
-            
-            String message = jsonResponse.substring(valueStart + 1, valueEnd);
-            
-            // Unescape basic JSON escapes
-            message = message.replace("\\\"", "\"")
-                            .replace("\\n", "\n")
-                            .replace("\\t", "\t")
-                            .replace("\\\\", "\\");
-            
-            return message;
-            
-        } catch (Exception e) {
-            System.out.println("Error extracting message from JSON: " + e.getMessage());
-            return jsonResponse; // Return original if extraction fails
+    /**
+     * The chat page with one more page of earlier pairs above the rendered ones, for the
+     * "show earlier" command of the earlier-messages marker. The next message collapses it again.
+     */
+    @AmiScriptAccessible(name = "showEarlierChatMessages", params = {"session"})
+    public String showEarlierChatMessages(Object session) {
+        ChatHistoryStore.SessionHistory history = chatHistory.get(session);
+        history.showEarlier();
+        return renderChatPage(history);
+    }
+    
+    private String renderChatPage(ChatHistoryStore.SessionHistory history) {
+        // Render only the newest window - older pairs stay in history until "show earlier"
+        List<ChatMessage> messages = history.range(0, CHAT_WINDOW_SIZE * (1 + history.getEarlierPages()));
+        int stored = history.size();
+        int older = stored - messages.size();
+        
+        // Concatenate cached fragments into a buffer sized up front
+        int length = CHAT_PAGE_HEAD.length() + CHAT_PAGE_MIDDLE.length() + CHAT_PAGE_TAIL.length() + 128;
+        for (ChatMessage msg : messages) {
+            length += msg.fragment.length();
         }
+        
+        StringBuilder page = new StringBuilder(length);
+        page.append(CHAT_PAGE_HEAD).append(stored).append(CHAT_PAGE_MIDDLE);
+        if (older > 0) {
+            page.append("            <div class=\"older-messages\" data-older=\"").append(older).append("\">")
+                .append(older).append(" earlier messages - type <strong>show earlier</strong> to load them</div>\n");
+        }
+        for (ChatMessage msg : messages) {
+            page.append(msg.fragment);
+        }
+        return page.append(CHAT_PAGE_TAIL).toString();
+    }
+    
+    /**
+     * Returns the message pairs of one history page, oldest first. offset counts back from
+     * the newest pair, so getChatPage(session, 20, 20) is the page just above the rendered window.
+     */
+    @AmiScriptAccessible(name = "getChatPage", params = {"session", "offset", "limit"})
+    public String getChatPage(Object session, int offset, int limit) {
+        List<ChatMessage> messages = chatHistory.get(session).range(offset, limit > 0 ? limit : CHAT_WINDOW_SIZE);
+        int length = 0;
+        for (ChatMessage msg : messages) {
+            length += msg.fragment.length();
+        }
+        
+        StringBuilder page = new StringBuilder(length);
+        for (ChatMessage msg : messages) {
+            page.append(msg.fragment);
+        }
+        return page.toString();
+    }
+    
+    private ChatMessage createMessage(String userMessage, String aiMessage) {
+        // Calculate dynamic heights based on message content - once per message, never on redraw
+        int userHeight = estimateMessageHeight(userMessage);
+        int aiHeight = estimateMessageHeight(aiMessage);
+        int aiTopPosition = Math.max(userHeight + 15, 60); // User message + padding, min 60px
+        int totalHeight = aiTopPosition + aiHeight + 20; // Actual space needed: ai start + ai height + padding
+        int containerMargin = 25; // Consistent spacing between pairs
+        
+        String fragment = renderMessagePair(userMessage, aiMessage, totalHeight, containerMargin, aiTopPosition, aiHeight);
+        return new ChatMessage(userMessage, aiMessage, fragment);
+    }
+    
+    private String renderMessagePair(String userMessage, String aiMessage,
+                                     int totalHeight, int containerMargin, int aiTopPosition, int aiHeight) {
+        return String.format(
+            "            <div class=\"message-pair\" style=\"min-height: %dpx; margin-bottom: %dpx;\">\n" +
+            "                <div class=\"user-message\">\n" +
+            "                    %s\n" +
+            "                </div>\n" +
+            "                \n" +
+            "                <div class=\"ai-message\" style=\"top: %dpx; max-height: %dpx;\">\n" +
+            "                    <span class=\"ai-label\">🤖</span> %s\n" +
+            "                </div>\n" +
+            "            </div>\n",
+            totalHeight,
+            containerMargin,
+            escapeHtml(userMessage),
+            aiTopPosition,
+            aiHeight + 20, // AI message max height with padding
+            aiMessage  // Don't escape AI response - it contains intentional HTML
+        );
+    }
+    
+    public String extractMessageFromJson(String jsonResponse) {
+        // Single-pass parse - returns the input as-is if there is no message field
+        String message = JsonResponseReader.parse(jsonResponse).getMessage();
+        return message != null ? message : jsonResponse;
     }
     
     private String escapeHtml(String text) {
@@ -516,45 +431,32 @@ public class TradingAiChatbot {
     
     @AmiScriptAccessible(name = "getChatHistory")
     public String getChatHistory() {
-        return String.format("Chat history: %d messages", conversationHistory.size());
+        return String.format("Chat history: %d messages", chatHistory.get(null).size());
     }
     
     @AmiScriptAccessible(name = "clearChatHistory")
     public String clearChatHistory() {
-        conversationHistory.clear();
+        // Every session, as before history was kept per session; history goes with the session state
+        chatSessions.clear();
         System.out.println("🧹 Chat history cleared");
         return "Chat history cleared - ready for new conversation!";
     }
     
+    @AmiScriptAccessible(name = "clearChatHistoryWithSession", params = {"session"})
+    public String clearChatHistoryWithSession(Object session) {
+        chatSessions.remove(session);
+        System.out.println("🧹 Chat history cleared for session");
+        return "Chat history cleared - ready for new conversation!";
+    }
+    
     @AmiScriptAccessible(name = "chatTest")
     public String chatTest() {
         return "🤖 Chat functionality is working through TradingAiChatbot!";
     }
     
     public String extractJsonField(String jsonResponse, String fieldName) {
-        try {
-            String fieldPattern = "\"" + fieldName + "\":";
-            int fieldStart = jsonResponse.indexOf(fieldPattern);
-            if (fieldStart == -1) {
-                return null;
-            }
-            
-            fieldStart = jsonResponse.indexOf("\"", fieldStart + fieldPattern.length());
-            if (fieldStart == -1) {
-                return null;
-            }
-            
-            int fieldEnd = jsonResponse.indexOf("\"", fieldStart + 1);
-            if (fieldEnd == -1) {
-                return null;
-            }
-            
-            return jsonResponse.substring(fieldStart + 1, fieldEnd);
-            
-        } catch (Exception e) {
-            System.out.println("Error extracting field " + fieldName + ": " + e.getMessage());
-            return null;
-        }
+        // Repeated calls on the same response reuse one parse
+        return JsonResponseReader.parse(jsonResponse).get(fieldName);
     }
     
 
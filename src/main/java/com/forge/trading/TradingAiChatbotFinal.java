@@ -1,7 +1,14 @@
 package com.forge.trading;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.f1.ami.amicommon.customobjects.AmiScriptAccessible;
 
@@ -10,21 +17,27 @@ public class TradingAiChatbotFinal {
     
 
     // MINIMAL VERSION - Just copy exact working logic from TradingAiChatbot
-    private static List<ChatMessage> conversationHistory = new ArrayList<>();
-    private static String lastSuggestedTrader = null;
-    
-    // Helper class for chat messages - exact copy
-    private static class ChatMessage {
-        String userInput;
-        String aiResponse;
-        String timestamp;
-        
-        ChatMessage(String userInput, String aiResponse) {
-            this.userInput = userInput;
-            this.aiResponse = aiResponse;
-            this.timestamp = new java.text.SimpleDateFormat("HH:mm").format(new java.util.Date());
-        }
-    }
+    private static ChatSessionStore chatSessions = new ChatSessionStore(100, 30 * 60 * 1000L);
+    private static ChatHistoryStore chatHistory = new ChatHistoryStore(chatSessions);
+    private static final IntentMatcher intentMatcher = IntentMatcher.getInstance();
+    
+    // Chat proxy client for the async path: 4 calls in flight, 2s connect / 15s read timeouts
+    private static volatile LlmClient llmClient = new LlmClient(LlmClient.DEFAULT_BASE_URL, 4, 2000, 15000);
+    
+    // Exact answers to analytic questions (top performer, who trades X, trader list, volume) from the trade data
+    private static final LocalQueryEngine queryEngine = LocalQueryEngine.getInstance();
+    
+    // Live trade aggregates sent with every LLM call, re-rendered only when trades change
+    private static final PromptContextBuilder promptContext = PromptContextBuilder.getInstance();
+    
+    // Local-first routing: 4s budget per LLM answer, breaker opens after 5 failures for 30s
+    private static volatile LlmRouter router = new LlmRouter(4000, 5, 30 * 1000L);
+    
+    // LLM answers by normalized query, dropped as soon as the trade data changes (or after 10 minutes)
+    private static final ChatResponseCache responseCache = new ChatResponseCache(TradeStore.getInstance(), 512, 10 * 60 * 1000L);
+    
+    // LLM answers the AMI script has yet to take with takeChatReply, by pending id
+    private static final PendingChatReplies pendingReplies = new PendingChatReplies(256);
     
     @AmiScriptAccessible
     public TradingAiChatbotFinal() {
@@ -49,11 +62,18 @@ public class TradingAiChatbotFinal {
     @AmiScriptAccessible(name = "processChatMessageWithSession", params = {"userMessage", "session"})
     public String processChatMessageWithSession(Object userMessage, Object session) {
         try {
+            long start = System.nanoTime();
             String message = userMessage.toString().toLowerCase();
             
-            // Phase 3: Try OpenAI for complex/help queries
-            if (message.contains("help") || message.contains("who") || message.contains("what") || 
-                message.contains("how") || message.contains("risk") || message.contains("performance")) {
+            // One pass finds every trader, symbol and command keyword in the message
+            IntentMatcher.Match match = intentMatcher.match(message);
+            ChatSessionStore.SessionState state = chatSessions.get(session);
+            state.recordIntent(match.getIntent());
+            
+            // Phase 3: Try OpenAI for open questions the intent engine can't answer, unless the breaker is open
+            // (AMI script reports no outcome here, so this path never takes the breaker's recovery probe)
+            LlmRouter currentRouter = router;
+            if (!currentRouter.resolvesLocally(match, state) && currentRouter.getBreakerState() == CircuitBreaker.State.CLOSED) {
                 
                 String openAIRequest = tryOpenAICallWithSession(message, session);
                 if (openAIRequest != null && openAIRequest.contains("openai_request")) {
@@ -62,33 +82,9 @@ public class TradingAiChatbotFinal {
                 // Otherwise fall through to mock responses
             }
             
-            // Simple command parsing for demo
-            if (message.contains("sarah jones") || message.contains("sarah")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Showing performance for Sarah Jones. I've updated all dashboard panels with their trading data.\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Sarah Jones\"\n" +
-                       "}";
-            } else if (message.contains("mike chen") || message.contains("mike")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Showing performance for Mike Chen. I've updated all dashboard panels with their trading data.\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Mike Chen\"\n" +
-                       "}";
-            } else if (message.contains("lisa wang") || message.contains("lisa")) {
-                return "{\n" +
-                       "  \"message\": \"📊 Showing performance for Lisa Wang. I've updated all dashboard panels with their trading data.\",\n" +
-                       "  \"command\": \"FILTER_TRADER\",\n" +
-                       "  \"trader\": \"Lisa Wang\"\n" +
-                       "}";
-            } else if (message.contains("reset") || message.contains("clear") || message.contains("show all")) {
-                return "{\n" +
-                       "  \"message\": \"🔄 Dashboard reset! Showing all traders and market data.\",\n" +
-                       "  \"command\": \"RESET_DASHBOARD\"\n" +
-                       "}";
-            } else {
-                return getSmartChatResponse(message);
-            }
+            String response = getLocalResponse(match, state);
+            currentRouter.record(LlmRouter.Route.LOCAL, start);
+            return response;
             
         } catch (Exception e) {
             return "{\n" +
@@ -97,128 +93,548 @@ public class TradingAiChatbotFinal {
         }
     }
     
-    // Phase 2: OpenAI integration using 3forge REST adapter
-    private String tryOpenAICall(String userMessage) {
+    /**
+     * Non-blocking version of processChatMessageWithSession for the chat panel. An answer that is
+     * ready at once (local or cached) is pushed to Html2 and returned. Otherwise a pending response
+     * carrying a "pendingId" is returned while the LLM answers in the background, and the script
+     * calls takeChatReply with that id to push the answer from its own thread.
+     *
+     * @return the response JSON, or a pending response while the LLM answers
+     */
+    @AmiScriptAccessible(name = "processChatMessageAsync", params = {"userMessage", "session", "layout"})
+    public String processChatMessageAsync(Object userMessage, Object session, Object layout) {
+        return processChatMessageWithBudget(userMessage, session, layout, router.getBudgetMillis());
+    }
+    
+    /**
+     * Same as processChatMessageAsync, with this message's LLM answer given budgetMillis instead of the router default.
+     */
+    @AmiScriptAccessible(name = "processChatMessageWithBudget", params = {"userMessage", "session", "layout", "budgetMillis"})
+    public String processChatMessageWithBudget(Object userMessage, Object session, Object layout, long budgetMillis) {
+        return replyOrPending(userMessage, session, layout, chatAsync(userMessage, session, budgetMillis), null);
+    }
+    
+    /**
+     * Pushes the answer for pendingId to the chat panel once it has arrived. The chat_poll datamodel
+     * calls this with the id from a pending response on every tick until it no longer answers pending.
+     * While a streamed answer is still arriving, each call renders the text received so far.
+     *
+     * @return the response JSON once pushed, the pending response while the LLM is still answering,
+     *         or null if pendingId is unknown or its answer was already taken
+     */
+    @AmiScriptAccessible(name = "takeChatReply", params = {"pendingId", "layout"})
+    public String takeChatReply(String pendingId, Object layout) {
+        PendingChatReplies.Reply reply = pendingReplies.takeDone(pendingId);
+        if (reply == null) {
+            PendingChatReplies.Reply pending = pendingReplies.get(pendingId);
+            if (pending == null) {
+                return null;
+            }
+            String streamed = pending.takeStreamed();
+            if (streamed != null) {
+                renderStreamingPair(layout, pending.session, pending.userMessage.toString(), extractStreamedMessage(streamed));
+            }
+            return getPendingResponse(pendingId);
+        }
+        String response = getDoneResponse(reply.response);
+        pushChatMessage(reply.userMessage, response, reply.session, layout);
+        return response;
+    }
+    
+    /**
+     * @return true if chatResponse is a pending response whose answer is still to be taken
+     */
+    boolean isPendingResponse(String chatResponse) {
+        return "true".equals(JsonResponseReader.parse(chatResponse).get("pending"));
+    }
+    
+    /**
+     * Pushes response to the chat panel if it is already done - the caller is on the session thread -
+     * otherwise parks it for takeChatReply. The LLM threads never touch the layout.
+     */
+    private String replyOrPending(Object userMessage, Object session, Object layout, CompletableFuture<String> response,
+                                  AtomicReference<String> streamed) {
+        if (response.isDone()) {
+            String done = getDoneResponse(response);
+            pushChatMessage(userMessage, done, session, layout);
+            return done;
+        }
+        return getPendingResponse(pendingReplies.add(userMessage, session, response, streamed));
+    }
+    
+    private static String getPendingResponse(String pendingId) {
+        return "{\n" +
+               "  \"message\": \"🤖 Processing with AI...\",\n" +
+               "  \"pending\": true,\n" +
+               "  \"pendingId\": \"" + pendingId + "\"\n" +
+               "}";
+    }
+    
+    private String getDoneResponse(CompletableFuture<String> response) {
         try {
-            // For now, return null to use fallback
-            // We'll implement the actual AMI script execution next
-            System.out.println("🔄 OpenAI call attempted for: " + userMessage);
-            return null;
-            
+            return response.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return "{\n" +
+                   "  \"message\": \"Error: " + escapeJson(cause.getMessage()) + "\"\n" +
+                   "}";
+        }
+    }
+    
+    CompletableFuture<String> chatAsync(Object userMessage, Object session) {
+        return chatAsync(userMessage, session, router.getBudgetMillis());
+    }
+    
+    /**
+     * Answers userMessage locally when the intent engine resolves it, otherwise through the LLM
+     * router: the local answer is used if the LLM fails, the breaker is open or budgetMillis runs
+     * out. Only computes the answer; pushing it to the chat panel is left to the session thread.
+     */
+    CompletableFuture<String> chatAsync(final Object userMessage, final Object session, long budgetMillis) {
+        long start = System.nanoTime();
+        final String message = userMessage.toString().toLowerCase();
+        final IntentMatcher.Match match = intentMatcher.match(message);
+        final ChatSessionStore.SessionState state = chatSessions.get(session);
+        state.recordIntent(match.getIntent());
+        LlmRouter currentRouter = router;
+        if (currentRouter.resolvesLocally(match, state)) {
+            String response = getLocalResponse(match, state);
+            currentRouter.record(LlmRouter.Route.LOCAL, start);
+            return CompletableFuture.completedFuture(response);
+        }
+        
+        // Repeated questions are answered from the cache while the trade data is unchanged
+        final String query = userMessage.toString();
+        final long cacheVersion = responseCache.getVersion();
+        String cached = responseCache.get(session, query);
+        if (cached != null) {
+            currentRouter.record(LlmRouter.Route.CACHE, start);
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        System.out.println("🔄 Async OpenAI call for: " + message);
+        Supplier<CompletableFuture<String>> upstream = new Supplier<CompletableFuture<String>>() {
+            @Override
+            public CompletableFuture<String> get() {
+                // Cached even if it arrives after the budget, so asking again gets the real answer
+                return llmClient.chat(query, session, promptContext.getSummary()).thenApply(new Function<String, String>() {
+                    @Override
+                    public String apply(String response) {
+                        String status = JsonResponseReader.parse(response).get("status");
+                        if ("error".equals(status) || "fallback".equals(status)) {
+                            // The proxy could not reach OpenAI - a failure as far as the breaker is concerned
+                            throw new CompletionException(new IOException("LLM proxy answered with status " + status));
+                        }
+                        responseCache.put(session, query, response, cacheVersion);
+                        return response;
+                    }
+                });
+            }
+        };
+        Supplier<String> fallback = new Supplier<String>() {
+            @Override
+            public String get() {
+                return getLocalResponse(match, state); // mock responses as fallback
+            }
+        };
+        return currentRouter.call(upstream, budgetMillis, fallback);
+    }
+    
+    /**
+     * @return the cached LLM answer for userInput from user, or null - for the AMI script datamodel path.
+     * user is session.getUsername() or the session itself; both find the entries chatAsync caches
+     */
+    @AmiScriptAccessible(name = "getCachedChatResponse", params = {"userInput", "user"})
+    public String getCachedChatResponse(Object userInput, Object user) {
+        return userInput != null ? responseCache.get(user, userInput.toString()) : null;
+    }
+    
+    /**
+     * @return the version to pass to cacheChatResponse, read before the question goes to the proxy
+     */
+    @AmiScriptAccessible(name = "getChatCacheVersion")
+    public long getChatCacheVersion() {
+        return responseCache.getVersion();
+    }
+    
+    @AmiScriptAccessible(name = "cacheChatResponse", params = {"userInput", "aiResponse", "user", "cacheVersion"})
+    public String cacheChatResponse(Object userInput, Object aiResponse, Object user, long cacheVersion) {
+        if (userInput != null && aiResponse != null) {
+            responseCache.put(user, userInput.toString(), aiResponse.toString(), cacheVersion);
+        }
+        return responseCache.getStats();
+    }
+    
+    @AmiScriptAccessible(name = "getChatCacheStats")
+    public String getChatCacheStats() {
+        return responseCache.getStats();
+    }
+    
+    /**
+     * Like processChatMessageAsync, but the LLM answer is shown in the chat panel as it is generated:
+     * every takeChatReply call while it streams renders the text received so far. Falls back to the
+     * non-streaming path when the chat panel cannot be found.
+     */
+    @AmiScriptAccessible(name = "streamChatMessage", params = {"userMessage", "session", "layout"})
+    public String streamChatMessage(Object userMessage, Object session, Object layout) {
+        AtomicReference<String> streamed = new AtomicReference<>();
+        return replyOrPending(userMessage, session, layout, chatStreamAsync(userMessage, session, layout, streamed), streamed);
+    }
+    
+    /**
+     * Streaming version of chatAsync. The text received so far is left in streamed and the future
+     * completes with the full response JSON; rendering either is left to the session thread. A
+     * stream that fails, ends early or ends empty counts as an LLM failure and gets the local answer.
+     */
+    CompletableFuture<String> chatStreamAsync(final Object userMessage, final Object session, final Object layout,
+                                              final AtomicReference<String> streamed) {
+        final long start = System.nanoTime();
+        final String query = userMessage.toString();
+        final IntentMatcher.Match match = intentMatcher.match(query.toLowerCase());
+        final ChatSessionStore.SessionState state = chatSessions.get(session);
+        final LlmRouter currentRouter = router;
+        if (currentRouter.resolvesLocally(match, state)) {
+            return chatAsync(userMessage, session); // answered locally
+        }
+        final long cacheVersion = responseCache.getVersion();
+        String cached = responseCache.get(session, query);
+        if (cached != null) {
+            currentRouter.record(LlmRouter.Route.CACHE, start);
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (!currentRouter.allowUpstream()) {
+            // Breaker open - the local answer, without a streaming pair
+            state.recordIntent(match.getIntent());
+            String response = getLocalResponse(match, state);
+            currentRouter.record(LlmRouter.Route.FALLBACK, start);
+            return CompletableFuture.completedFuture(response);
+        }
+        
+        if (!renderStreamingPair(layout, session, query, "…")) {
+            currentRouter.releaseUpstream();
+            return chatAsync(userMessage, session);
+        }
+        
+        state.recordIntent(match.getIntent());
+        System.out.println("🔄 Streaming OpenAI call for: " + query);
+        
+        LlmClient.StreamListener listener = new LlmClient.StreamListener() {
+            @Override
+            public void onText(String text) {
+                streamed.set(text); // rendered by takeChatReply, on the session thread
+            }
+        };
+        
+        return llmClient.stream(query, session, promptContext.getSummary(), listener).handle(new BiFunction<String, Throwable, String>() {
+            @Override
+            public String apply(String text, Throwable error) {
+                String response;
+                if (error == null) {
+                    String trimmed = text.trim();
+                    JsonResponseReader.Result result = JsonResponseReader.parse(trimmed);
+                    if (trimmed.isEmpty()) {
+                        error = new IOException("LLM proxy stream ended without an answer");
+                    } else if (trimmed.startsWith("{") && !result.isValid()) {
+                        error = new IOException("LLM proxy stream ended mid-answer");
+                    } else if ("fallback".equals(result.get("status"))) {
+                        error = new IOException("LLM proxy answered with status fallback");
+                    }
+                }
+                currentRouter.recordUpstream(start, error);
+                if (error != null) {
+                    System.out.println("❌ OpenAI stream failed: " + error.getMessage());
+                    response = getLocalResponse(match, state); // mock responses as fallback
+                } else {
+                    // The model answers in the {"message", "command", "trader"} format; wrap plain text
+                    response = JsonResponseReader.parse(text).getMessage() != null
+                        ? text : "{\"message\": \"" + escapeJson(text) + "\"}";
+                    responseCache.put(session, query, response, cacheVersion);
+                }
+                return response;
+            }
+        });
+    }
+    
+    /**
+     * Renders the chat page with query's pair showing partial, on the caller's thread.
+     *
+     * @return false if the chat panel could not be found or updated
+     */
+    private boolean renderStreamingPair(Object layout, Object session, String query, String partial) {
+        try {
+            Object panel = ReflectiveDispatch.getPanel(layout, "Html2");
+            ReflectiveDispatch.Binding setHtml = panel != null ? ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_HTML) : null;
+            if (setHtml == null) {
+                return false;
+            }
+            setHtml.invoke(panel, renderChatPage(chatHistory.get(session), renderMessagePair(query, partial)));
+            return true;
         } catch (Exception e) {
-            System.out.println("❌ OpenAI call failed: " + e.getMessage());
-            return null;
+            System.out.println("❌ Chat stream update failed: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * The message text streamed so far. The completion is JSON, so while it is incomplete the
+     * reader yields the partial message value; before that field starts nothing is shown.
+     */
+    private String extractStreamedMessage(String text) {
+        String trimmed = text.trim();
+        if (!trimmed.startsWith("{")) {
+            return text; // plain-text answer
+        }
+        String message = JsonResponseReader.parse(trimmed).getMessage();
+        return message != null ? message : "…";
+    }
+    
+    static LlmClient getLlmClient() {
+        return llmClient;
+    }
+    
+    static LlmRouter getLlmRouter() {
+        return router;
+    }
+    
+    /**
+     * Replaces the router, e.g. to change the breaker thresholds. Calls already routed finish on the previous one.
+     */
+    static void setLlmRouter(LlmRouter llmRouter) {
+        router = llmRouter;
+    }
+    
+    /**
+     * @return the live data summary the LLM is given with each question
+     */
+    @AmiScriptAccessible(name = "getPromptContext")
+    public String getPromptContext() {
+        return promptContext.getSummary();
+    }
+    
+    @AmiScriptAccessible(name = "getLlmRouterStats")
+    public String getLlmRouterStats() {
+        return router.getStats();
+    }
+    
+    /**
+     * Replaces the LLM client, e.g. to point at another proxy. The previous client finishes its in-flight calls.
+     */
+    static void setLlmClient(LlmClient client) {
+        LlmClient previous = llmClient;
+        llmClient = client;
+        previous.shutdown();
+    }
+    
+    private String getLocalResponse(IntentMatcher.Match match, ChatSessionStore.SessionState state) {
+        // Simple command parsing for demo
+        String trader = match.getTrader();
+        String suggested;
+        if (trader != null) {
+            return "{\n" +
+                   "  \"message\": \"📊 Showing performance for " + escapeJson(trader) + ". I've updated all dashboard panels with their trading data.\",\n" +
+                   "  \"command\": \"FILTER_TRADER\",\n" +
+                   "  \"trader\": \"" + escapeJson(trader) + "\"\n" +
+                   "}";
+        } else if (match.has(IntentMatcher.Keyword.RESET)) {
+            return "{\n" +
+                   "  \"message\": \"🔄 Dashboard reset! Showing all traders and market data.\",\n" +
+                   "  \"command\": \"RESET_DASHBOARD\"\n" +
+                   "}";
+        } else if (match.getIntent() == IntentMatcher.Intent.CONFIRM && (suggested = state.takeSuggestion()) != null) {
+            // "yes" to this session's own suggestion - taken atomically, so it is used at most once
+            return "{\n" +
+                   "  \"message\": \"📊 Filtering dashboard to show " + escapeJson(suggested + (suggested.endsWith("s") ? "'" : "'s")) + " performance...\",\n" +
+                   "  \"command\": \"FILTER_TRADER\",\n" +
+                   "  \"trader\": \"" + escapeJson(suggested) + "\"\n" +
+                   "}";
+        } else {
+            return getSmartChatResponse(match, state);
         }
     }
     
+    // Only the newest pairs are rendered; "show earlier" adds a page at a time, getChatPage fetches any page
+    private static final int CHAT_WINDOW_SIZE = 20;
+    
+    // Chat page split around the message count and the messages - see generateChatHtmlWithSession
+    private static final String CHAT_PAGE_HEAD =
+        "<!DOCTYPE html>\n" +
+        "<html>\n" +
+        "<head>\n" +
+        "    <style>\n" +
+        "        body { margin: 0; padding: 0; font-family: Arial, sans-serif; background: #f8f9fa; width: 100%; height: 100%; overflow: hidden; }\n" +
+        "        .chat-container { position: absolute; top: 0; left: 0; width: 100%; height: 100%; }\n" +
+        "        .chat-header { position: absolute; top: 0; left: 0; width: 100%; height: 40px; background: #fff; border-bottom: 2px solid #28a745; color: #333; text-align: center; font-weight: bold; font-size: 14px; line-height: 40px; box-sizing: border-box; }\n" +
+        "        .messages-area { position: absolute; top: 50px; left: 10px; right: 10px; bottom: 10px; overflow-y: auto; box-sizing: border-box; padding: 10px 0; }\n" +
+        "        .message-pair { position: relative; width: 100%; }\n" +
+        "        .user-message { position: absolute; top: 5px; right: 0; width: 70%; padding: 12px 16px; background: #28a745; color: white; border-radius: 12px; border-bottom-right-radius: 4px; word-wrap: break-word; line-height: 1.4; font-size: 14px; }\n" +
+        "        .ai-message { position: absolute; left: 0; width: 70%; padding: 12px 16px; background: #fff; color: #333; border: 1px solid #dee2e6; border-radius: 12px; border-bottom-left-radius: 4px; word-wrap: break-word; line-height: 1.4; font-size: 14px; box-shadow: 0 1px 3px rgba(0,0,0,0.1); }\n" +
+        "        .ai-label { color: #28a745; font-weight: bold; }\n" +
+        "        .older-messages { text-align: center; color: #6c757d; font-size: 12px; padding: 4px 0 12px; }\n" +
+        "    </style>\n" +
+        "</head>\n" +
+        "<body>\n" +
+        "    <div class=\"chat-container\">\n" +
+        "        <div class=\"chat-header\">🤖 AI Trading Assistant (<span id=\"chat-count\">";
+    private static final String CHAT_PAGE_MIDDLE =
+        "</span> messages)</div>\n" +
+        "        <div class=\"messages-area\">";
+    private static final String CHAT_PAGE_TAIL =
+        "</div>\n" +
+        "    </div>\n" +
+        "    <script>\n" +
+        "        // Auto-scroll to bottom of chat\n" +
+        "        var messagesArea = document.querySelector('.messages-area');\n" +
+        "        messagesArea.scrollTop = messagesArea.scrollHeight;\n" +
+        "    </script>\n" +
+        "</body>\n" +
+        "</html>";
+    
     // EXACT COPY of working generateChatHtml method
     @AmiScriptAccessible(name = "generateChatHtml", params = {"userInput", "chatResponse"})
     public String generateChatHtml(Object userInput, Object chatResponse) {
+        return generateChatHtmlWithSession(userInput, chatResponse, null);
+    }
+    
+    @AmiScriptAccessible(name = "generateChatHtmlWithSession", params = {"userInput", "chatResponse", "session"})
+    public String generateChatHtmlWithSession(Object userInput, Object chatResponse, Object session) {
         try {
-            String userMessage = userInput.toString();
-            String jsonResponse = chatResponse.toString();
-            String aiMessage = extractMessageFromJson(jsonResponse);
-            
-            // Add to conversation history
-            conversationHistory.add(new ChatMessage(userMessage, aiMessage));
-            
-            // Build all messages HTML with dynamic sizing
-            StringBuilder messagesHtml = new StringBuilder();
-            
-            for (ChatMessage msg : conversationHistory) {
-                int userHeight = 80;  // Simplified - no complex calculations
-                int aiHeight = 80;
-                int aiTopPosition = 95;
-                int totalHeight = 175;
-                int containerMargin = 25;
-                
-                messagesHtml.append(String.format(
-                    "            <div class=\"message-pair\" style=\"min-height: %dpx; margin-bottom: %dpx;\">\n" +
-                    "                <div class=\"user-message\">\n" +
-                    "                    %s\n" +
-                    "                </div>\n" +
-                    "                \n" +
-                    "                <div class=\"ai-message\" style=\"top: %dpx; max-height: %dpx;\">\n" +
-                    "                    <span class=\"ai-label\">🤖</span> %s\n" +
-                    "                </div>\n" +
-                    "            </div>\n",
-                    totalHeight,
-                    containerMargin,
-                    escapeHtml(msg.userInput),
-                    aiTopPosition,
-                    aiHeight + 20,
-                    msg.aiResponse
-                ));
-            }
-            
-            return String.format(
-                "<!DOCTYPE html>\n" +
-                "<html>\n" +
-                "<head>\n" +
-                "    <style>\n" +
-                "        body { margin: 0; padding: 0; font-family: Arial, sans-serif; background: #f8f9fa; width: 100%%; height: 100%%; overflow: hidden; }\n" +
-                "        .chat-container { position: absolute; top: 0; left: 0; width: 100%%; height: 100%%; }\n" +
-                "        .chat-header { position: absolute; top: 0; left: 0; width: 100%%; height: 40px; background: #fff; border-bottom: 2px solid #28a745; color: #333; text-align: center; font-weight: bold; font-size: 14px; line-height: 40px; box-sizing: border-box; }\n" +
-                "        .messages-area { position: absolute; top: 50px; left: 10px; right: 10px; bottom: 10px; overflow-y: auto; box-sizing: border-box; padding: 10px 0; }\n" +
-                "        .message-pair { position: relative; width: 100%%; }\n" +
-                "        .user-message { position: absolute; top: 5px; right: 0; width: 70%%; padding: 12px 16px; background: #28a745; color: white; border-radius: 12px; border-bottom-right-radius: 4px; word-wrap: break-word; line-height: 1.4; font-size: 14px; }\n" +
-                "        .ai-message { position: absolute; left: 0; width: 70%%; padding: 12px 16px; background: #fff; color: #333; border: 1px solid #dee2e6; border-radius: 12px; border-bottom-left-radius: 4px; word-wrap: break-word; line-height: 1.4; font-size: 14px; box-shadow: 0 1px 3px rgba(0,0,0,0.1); }\n" +
-                "        .ai-label { color: #28a745; font-weight: bold; }\n" +
-                "    </style>\n" +
-                "</head>\n" +
-                "<body>\n" +
-                "    <div class=\"chat-container\">\n" +
-                "        <div class=\"chat-header\">🤖 AI Trading Assistant (%d messages)</div>\n" +
-                "        <div class=\"messages-area\">%s</div>\n" +
-                "    </div>\n" +
-                "    <script>\n" +
-                "        // Auto-scroll to bottom of chat\n" +
-                "        var messagesArea = document.querySelector('.messages-area');\n" +
-                "        messagesArea.scrollTop = messagesArea.scrollHeight;\n" +
-                "    </script>\n" +
-                "</body>\n" +
-                "</html>",
-                conversationHistory.size(),
-                messagesHtml.toString()
-            );
+            ChatHistoryStore.SessionHistory history = appendMessage(userInput, chatResponse, session);
+            return renderChatPage(history);
             
         } catch (Exception e) {
             return "Error generating chat HTML: " + e.getMessage();
         }
     }
     
-    // Essential utility methods - exact copies
-    public String extractMessageFromJson(String jsonResponse) {
+    /**
+     * The chat page with one more page of earlier pairs above the rendered ones, for the
+     * "show earlier" command of the earlier-messages marker. The next message collapses it again.
+     */
+    @AmiScriptAccessible(name = "showEarlierChatMessages", params = {"session"})
+    public String showEarlierChatMessages(Object session) {
+        ChatHistoryStore.SessionHistory history = chatHistory.get(session);
+        history.showEarlier();
+        return renderChatPage(history);
+    }
+    
+    /**
+     * Returns the message pairs of one history page, oldest first. offset counts back from
+     * the newest pair, so getChatPage(session, 20, 20) is the page just above the rendered window.
+     */
+    @AmiScriptAccessible(name = "getChatPage", params = {"session", "offset", "limit"})
+    public String getChatPage(Object session, int offset, int limit) {
+        List<ChatMessage> messages = chatHistory.get(session).range(offset, limit > 0 ? limit : CHAT_WINDOW_SIZE);
+        int length = 0;
+        for (ChatMessage msg : messages) {
+            length += msg.fragment.length();
+        }
+        
+        StringBuilder page = new StringBuilder(length);
+        for (ChatMessage msg : messages) {
+            page.append(msg.fragment);
+        }
+        return page.toString();
+    }
+    
+    /**
+     * Appends the exchange and re-renders the chat panel from the cached fragments.
+     */
+    @AmiScriptAccessible(name = "pushChatMessage", params = {"userInput", "chatResponse", "session", "layout"})
+    public String pushChatMessage(Object userInput, Object chatResponse, Object session, Object layout) {
         try {
-            int messageStart = jsonResponse.indexOf("\"message\":");
-            if (messageStart == -1) {
-                return jsonResponse;
-            }
-            
-            int valueStart = jsonResponse.indexOf("\"", messageStart + 10);
-            if (valueStart == -1) {
-                return jsonResponse;
-            }
-            
-            int valueEnd = valueStart + 1;
-            while (valueEnd < jsonResponse.length()) {
-                char c = jsonResponse.charAt(valueEnd);
-                if (c == '"' && jsonResponse.charAt(valueEnd - 1) != '\\') {
-                    break;
-                }
-                valueEnd++;
+            ChatHistoryStore.SessionHistory history = appendMessage(userInput, chatResponse, session);
+            Object panel = ReflectiveDispatch.getPanel(layout, "Html2");
+            if (panel == null) {
+                return "ERROR: Chat panel Html2 not found";
             }
             
-            if (valueEnd >= jsonResponse.length()) {
-                return jsonResponse;
+            ReflectiveDispatch.Binding setHtml = ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_HTML);
+            if (setHtml == null) {
+                return "ERROR: Chat panel has no HTML setter";
             }
-            
-            String message = jsonResponse.substring(valueStart + 1, valueEnd);
-            return message.replace("\\\"", "\"").replace("\\n", "\n").replace("\\\\", "\\");
+            setHtml.invoke(panel, renderChatPage(history));
+            return "SUCCESS: Rendered chat panel";
             
         } catch (Exception e) {
-            return jsonResponse;
+            return "Error pushing chat message: " + e.getMessage();
+        }
+    }
+    
+    private ChatHistoryStore.SessionHistory appendMessage(Object userInput, Object chatResponse, Object session) {
+        String userMessage = userInput.toString();
+        String aiMessage = extractMessageFromJson(chatResponse.toString());
+        
+        // Add to conversation history - fragment is rendered once, here
+        ChatHistoryStore.SessionHistory history = chatHistory.get(session);
+        history.append(new ChatMessage(userMessage, aiMessage, renderMessagePair(userMessage, aiMessage)));
+        return history;
+    }
+    
+    private String renderMessagePair(String userMessage, String aiMessage) {
+        int aiHeight = 80;  // Simplified - no complex calculations
+        int aiTopPosition = 95;
+        int totalHeight = 175;
+        int containerMargin = 25;
+        
+        return String.format(
+            "            <div class=\"message-pair\" style=\"min-height: %dpx; margin-bottom: %dpx;\">\n" +
+            "                <div class=\"user-message\">\n" +
+            "                    %s\n" +
+            "                </div>\n" +
+            "                \n" +
+            "                <div class=\"ai-message\" style=\"top: %dpx; max-height: %dpx;\">\n" +
+            "                    <span class=\"ai-label\">🤖</span> %s\n" +
+            "                </div>\n" +
+            "            </div>\n",
+            totalHeight,
+            containerMargin,
+            escapeHtml(userMessage),
+            aiTopPosition,
+            aiHeight + 20,
+            aiMessage
+        );
+    }
+    
+    private String renderChatPage(ChatHistoryStore.SessionHistory history) {
+        return renderChatPage(history, null);
+    }
+    
+    /**
+     * @param streaming a pair still streaming in, shown after the stored ones; null for none
+     */
+    private String renderChatPage(ChatHistoryStore.SessionHistory history, String streaming) {
+        // Render only the newest window - older pairs stay in history until "show earlier"
+        List<ChatMessage> messages = history.range(0, CHAT_WINDOW_SIZE * (1 + history.getEarlierPages()));
+        int stored = history.size();
+        int older = stored - messages.size();
+        
+        // Concatenate cached fragments into a buffer sized up front
+        int length = CHAT_PAGE_HEAD.length() + CHAT_PAGE_MIDDLE.length() + CHAT_PAGE_TAIL.length() + 128
+            + (streaming != null ? streaming.length() : 0);
+        for (ChatMessage msg : messages) {
+            length += msg.fragment.length();
         }
+        
+        StringBuilder page = new StringBuilder(length);
+        page.append(CHAT_PAGE_HEAD).append(stored).append(CHAT_PAGE_MIDDLE);
+        if (older > 0) {
+            page.append("<div class=\"older-messages\" data-older=\"").append(older).append("\">")
+                .append(older).append(" earlier messages - type <strong>show earlier</strong> to load them</div>\n");
+        }
+        for (ChatMessage msg : messages) {
+            page.append(msg.fragment);
+        }
+        if (streaming != null) {
+            page.append(streaming);
+        }
+        return page.append(CHAT_PAGE_TAIL).toString();
+    }
+    
+    // Essential utility methods - exact copies
+    public String extractMessageFromJson(String jsonResponse) {
+        // Single-pass parse - returns the input as-is if there is no message field
+        String message = JsonResponseReader.parse(jsonResponse).getMessage();
+        return message != null ? message : jsonResponse;
     }
     
     private String escapeHtml(String text) {
@@ -228,31 +644,25 @@ public class TradingAiChatbotFinal {
     
     // Compatibility methods for TradingDashboardManager
     public String extractJsonField(String jsonResponse, String fieldName) {
-        try {
-            String fieldPattern = "\"" + fieldName + "\":";
-            int fieldStart = jsonResponse.indexOf(fieldPattern);
-            if (fieldStart == -1) return null;
-            
-            fieldStart = jsonResponse.indexOf("\"", fieldStart + fieldPattern.length());
-            if (fieldStart == -1) return null;
-            
-            int fieldEnd = jsonResponse.indexOf("\"", fieldStart + 1);
-            if (fieldEnd == -1) return null;
-            
-            return jsonResponse.substring(fieldStart + 1, fieldEnd);
-        } catch (Exception e) {
-            return null;
-        }
+        // Repeated calls on the same response reuse one parse
+        return JsonResponseReader.parse(jsonResponse).get(fieldName);
     }
     
     @AmiScriptAccessible(name = "getChatHistory")
     public String getChatHistory() {
-        return String.format("Chat history: %d messages", conversationHistory.size());
+        return String.format("Chat history: %d messages", chatHistory.get(null).size());
     }
     
     @AmiScriptAccessible(name = "clearChatHistory")
     public String clearChatHistory() {
-        conversationHistory.clear();
+        // Every session, as before history was kept per session; history goes with the session state
+        chatSessions.clear();
+        return "Chat history cleared!";
+    }
+    
+    @AmiScriptAccessible(name = "clearChatHistoryWithSession", params = {"session"})
+    public String clearChatHistoryWithSession(Object session) {
+        chatSessions.remove(session);
         return "Chat history cleared!";
     }
     
@@ -282,29 +692,35 @@ public class TradingAiChatbotFinal {
     // Helper method to escape JSON strings
     private String escapeJson(String text) {
         if (text == null) return "";
-        return text.replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
     }
     
-    private String getSmartChatResponse(String message) {
+    private String getSmartChatResponse(IntentMatcher.Match match, ChatSessionStore.SessionState state) {
+        // Analytic questions are evaluated over the loaded trades; the demo answers below cover an empty store
+        String answer = queryEngine.answer(match, state);
+        if (answer != null) {
+            return answer;
+        }
+        
         // Simple demo-focused conversation patterns from original chatbot
         
         // TOP PERFORMER QUERIES  
-        if (message.contains("best") || message.contains("top performer") || message.contains("top trader") || message.contains("who's the")) {
-            lastSuggestedTrader = "Mike Chen";  // Remember for context
+        if (match.has(IntentMatcher.Keyword.TOP_PERFORMER)) {
+            state.suggest("Mike Chen");  // Remember for context
             return "{\n" +
                    "  \"message\": \"🏆 Mike Chen is currently our top performer with +$4,521 P&L. He specializes in tech/semiconductor trades.\\n\\nWould you like me to filter the dashboard to show his detailed performance?\"\n" +
                    "}";
         }
         
         // "WHO TRADES TSLA?" - DEMO ESSENTIAL
-        else if (message.contains("who trades") && (message.contains("TSLA") || message.contains("tesla"))) {
+        else if (match.has(IntentMatcher.Keyword.WHO_TRADES) && match.getSymbols().contains("TSLA")) {
             return "{\n" +
                    "  \"message\": \"⚡ <strong>TSLA Traders:</strong><br><br>🚀 <strong>Sarah Jones</strong> - Growth specialist<br>⚡ <strong>Lisa Wang</strong> - Innovation/EV focus<br><br>Both are aggressive with high-growth names. Want to see their performance?\"\n" +
                    "}";
         }
         
         // HELP SYSTEM
-        else if (message.contains("help") || message.contains("what can you do") || message.contains("examples")) {
+        else if (match.has(IntentMatcher.Keyword.HELP)) {
             return getChatHelpMessage();
         }
         
@@ -322,6 +738,7 @@ public class TradingAiChatbotFinal {
                "Try these key questions:<br><br>" +
                "🏆 <strong>'Who's the top performer?'</strong> - See our best trader<br>" +
                "👥 <strong>'How is Mike Chen doing?'</strong> - Filter to specific trader<br>" +
+               "📋 <strong>'List all traders'</strong> - P&L leaderboard<br>" +
                "🔄 <strong>'Reset dashboard'</strong> - Clear all filters<br><br>" +
                "Just ask naturally - I understand trading language!\"\n" +
                "}";
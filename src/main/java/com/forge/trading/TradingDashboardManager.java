@@ -1,5 +1,14 @@
 package com.forge.trading;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BooleanSupplier;
+
 import com.f1.ami.amicommon.customobjects.AmiScriptAccessible;
 
 @AmiScriptAccessible(name = "TradingDashboardManager")
@@ -8,6 +17,49 @@ public class TradingDashboardManager {
     // Static chatbot instance for delegation (minimal OpenAI version)
     private static TradingAiChatbotFinal chatbot = new TradingAiChatbotFinal();
     
+    // Shared columnar trade store backing all trader metrics
+    private static TradeStore tradeStore = TradeStore.getInstance();
+    private static TraderAggregator traderAggregator = TraderAggregator.getInstance();
+    
+    // Last 1m/5m/1h P&L, trades and win rate per trader and per symbol
+    private static RollingWindows rollingWindows = new RollingWindows(tradeStore);
+    
+    // Computed metrics + rendered HTML per trader, invalidated per trader as trades arrive
+    private static TraderMetricsCache metricsCache = new TraderMetricsCache(tradeStore, traderAggregator, rollingWindows, 256);
+    
+    // Trader <-> symbol bitsets for the heatmap filter, updated on every trade
+    private static TraderSymbolIndex symbolIndex = new TraderSymbolIndex(tradeStore);
+    
+    // Trader x symbol x minute/hour/day P&L and volume aggregates for the charts
+    private static PnlCube pnlCube = new PnlCube(tradeStore);
+    
+    // Real-time feed of trades, orders and quotes into AMI through the relay; null until started
+    private static volatile TradeFeed tradeFeed;
+    
+    // Synthetic load generator of the current or last run, null if none was started
+    private static volatile SyntheticMarketGenerator generator;
+    
+    // Thread of the current or last generator run, joined before the next run starts
+    private static volatile Thread generatorThread;
+    
+    // Held while a run is stopped and the next one started - every script call has its own manager
+    private static final Object generatorLock = new Object();
+    
+    // Last HTML rendered into each layout's Html1, to skip re-rendering unchanged cards
+    private static PanelDeltaTracker panelDeltas = new PanelDeltaTracker();
+    
+    // Collapses bursts of trader clicks per layout into the latest one (50ms debounce, 250ms max)
+    private static SelectionCoalescer selectionCoalescer = new SelectionCoalescer(50, 250);
+    
+    // Latest trader clicked per layout, not yet applied to Html1
+    private static Map<Object, String> pendingSelections = Collections.synchronizedMap(new WeakHashMap<Object, String>());
+    
+    // Trader filter run (trades3 + marketdata1) in flight per layout; guarded by pendingSelections
+    private static Map<Object, SelectionRun> selectionRuns = new WeakHashMap<>();
+    
+    // A run whose trades3 onComplete never came is given up after this long
+    private static final long SELECTION_RUN_TIMEOUT_MILLIS = 10000;
+    
     private String currentChatQuery = "";  // Default empty query
     
     @AmiScriptAccessible
@@ -20,11 +72,28 @@ public class TradingDashboardManager {
         try {
             String traderName = trader.toString();
             
-            // Generate trader HTML
-            String traderHtml = generateTraderHtml(traderName);
+            // Nothing loaded yet - say so rather than showing a trader with $0 and no trades
+            if (tradeStore.size() == 0) {
+                panelDeltas.forget(layout, "Html1");
+                if (!updateHtmlPanel(layout, TraderHtmlRenderer.NO_DATA_HTML)) {
+                    System.out.println("❌ Could not show the no-data message in Html1 for " + traderName);
+                    return "ERROR: Could not update HTML panel for " + traderName + " (trade store is empty)";
+                }
+                return "NO DATA: Trade store is empty, " + traderName + " not rendered";
+            }
+            
+            String traderHtml = metricsCache.get(traderName).getHtml();
             
-            // Update the HTML panel
-            updateHtmlPanel(layout, traderHtml);
+            // Html1 already shows exactly these cards - skip the round trip to the browser
+            if (panelDeltas.isCurrent(layout, "Html1", traderHtml)) {
+                return "SUCCESS: HTML panel already current for " + traderName;
+            }
+            
+            if (!updateHtmlPanel(layout, traderHtml)) {
+                panelDeltas.forget(layout, "Html1");
+                return "ERROR: Could not update HTML panel for " + traderName;
+            }
+            panelDeltas.commit(layout, "Html1", traderHtml);
             
             return "SUCCESS: Updated HTML panel for " + traderName;
             
@@ -38,13 +107,12 @@ public class TradingDashboardManager {
         try {
             String traderName = trader.toString();
             
-            // Calculate trader metrics
-            TraderMetrics metrics = calculateTraderMetrics(traderName, null);
-            
-            // Generate rich HTML metrics cards
-            String html = generateTraderHTML(metrics);
+            if (tradeStore.size() == 0) {
+                return TraderHtmlRenderer.NO_DATA_HTML;
+            }
             
-            return html;
+            // Cached per trader until one of their trades arrives
+            return metricsCache.get(traderName).getHtml();
             
         } catch (Exception e) {
             return "ERROR: " + e.getMessage();
@@ -53,8 +121,7 @@ public class TradingDashboardManager {
     
     private Object getPanel(Object layout, String panelId) {
         try {
-            java.lang.reflect.Method getPanelMethod = layout.getClass().getMethod("getPanel", String.class);
-            return getPanelMethod.invoke(layout, panelId);
+            return ReflectiveDispatch.getPanel(layout, panelId);
         } catch (Exception e) {
             System.out.println("Error getting panel: " + e.getMessage());
             return null;
@@ -63,42 +130,17 @@ public class TradingDashboardManager {
     
     private void updatePanelHtml(Object panel, String html) {
         try {
-            // Try different methods that might work for updating HTML content
-            Class<?> panelClass = panel.getClass();
-            
-            // Method 1: Try setValue
-            try {
-                java.lang.reflect.Method setValueMethod = panelClass.getMethod("setValue", String.class);
-                setValueMethod.invoke(panel, html);
-                System.out.println("SUCCESS: Used setValue method");
-                return;
-            } catch (NoSuchMethodException e) {
-                System.out.println("setValue method not found, trying alternatives...");
-            }
-            
-            // Method 2: Try setHtml
-            try {
-                java.lang.reflect.Method setHtmlMethod = panelClass.getMethod("setHtml", String.class);
-                setHtmlMethod.invoke(panel, html);
-                System.out.println("SUCCESS: Used setHtml method");
-                return;
-            } catch (NoSuchMethodException e) {
-                System.out.println("setHtml method not found, trying alternatives...");
-            }
-            
-            // Method 3: Try setContent
-            try {
-                java.lang.reflect.Method setContentMethod = panelClass.getMethod("setContent", String.class);
-                setContentMethod.invoke(panel, html);
-                System.out.println("SUCCESS: Used setContent method");
+            // Cached per panel class: setValue, then setHtml, then setContent
+            ReflectiveDispatch.Binding setHtml = ReflectiveDispatch.bind(panel, ReflectiveDispatch.Op.SET_HTML);
+            if (setHtml != null) {
+                setHtml.invoke(panel, html);
+                System.out.println("SUCCESS: Used " + setHtml.methodName + " method");
                 return;
-            } catch (NoSuchMethodException e) {
-                System.out.println("setContent method not found");
             }
             
             // If we get here, log available methods
             System.out.println("Available methods on panel:");
-            for (java.lang.reflect.Method method : panelClass.getMethods()) {
+            for (java.lang.reflect.Method method : panel.getClass().getMethods()) {
                 if (method.getName().contains("set") || method.getName().contains("html") || method.getName().contains("Html")) {
                     System.out.println("  " + method.getName() + "(" + java.util.Arrays.toString(method.getParameterTypes()) + ")");
                 }
@@ -110,187 +152,50 @@ public class TradingDashboardManager {
     }
     
     private TraderMetrics calculateTraderMetrics(String trader, Object layout) {
-        // For now, return mock data - we'll enhance this to query real data
-        TraderMetrics metrics = new TraderMetrics();
-        metrics.traderName = trader;
-        
-        // Mock calculations based on trader name
-        switch(trader) {
-            case "Sarah Jones":
-                metrics.totalPnl = 2847.50;
-                metrics.tradeCount = 12;
-                metrics.winRate = 75.0;
-                metrics.topSymbol = "AAPL";
-                break;
-            case "Mike Chen":
-                metrics.totalPnl = 4521.30;
-                metrics.tradeCount = 18;
-                metrics.winRate = 83.3;
-                metrics.topSymbol = "GOOGL";
-                break;
-            case "Lisa Wang":
-                metrics.totalPnl = -876.20;
-                metrics.tradeCount = 8;
-                metrics.winRate = 37.5;
-                metrics.topSymbol = "TSLA";
-                break;
-            default:
-                metrics.totalPnl = 1250.00;
-                metrics.tradeCount = 10;
-                metrics.winRate = 60.0;
-                metrics.topSymbol = "SPY";
-        }
-        
-        return metrics;
+        // Ready snapshot maintained incrementally as trades arrive - nothing to recompute
+        return metricsCache.get(trader).metrics;
     }
     
     private String generateTraderHTML(TraderMetrics metrics) {
-        String pnlClass = metrics.totalPnl >= 0 ? "positive" : "negative";
-        String pnlSign = metrics.totalPnl >= 0 ? "+" : "";
-        
-        return String.format(
-            "<style>\n" +
-            "    .metrics-container {\n" +
-            "        position: relative;\n" +
-            "        width: 100%%;\n" +
-            "        height: 100%%;\n" +
-            "        min-width: 600px;\n" +
-            "        min-height: 400px;\n" +
-            "        background-color: #f8f9fa;\n" +
-            "        font-family: Arial, sans-serif;\n" +
-            "    }\n" +
-            "    \n" +
-            "    .trader-header {\n" +
-            "        position: absolute;\n" +
-            "        top: 2%%;\n" +
-            "        left: 0;\n" +
-            "        right: 0;\n" +
-            "        text-align: center;\n" +
-            "        font-size: 24px;\n" +
-            "        font-weight: bold;\n" +
-            "        color: #007bff;\n" +
-            "        border-bottom: 2px solid #007bff;\n" +
-            "        padding-bottom: 10px;\n" +
-            "    }\n" +
-            "    \n" +
-            "    .metric-card {\n" +
-            "        position: absolute;\n" +
-            "        background: white;\n" +
-            "        border-radius: 12px;\n" +
-            "        box-shadow: 0 4px 8px rgba(0,0,0,0.15);\n" +
-            "        border-left: 6px solid #007bff;\n" +
-            "        width: 45%%;\n" +
-            "        height: 35%%;\n" +
-            "    }\n" +
-            "    \n" +
-            "    .card-1 { top: 15%%; left: 2.5%%; border-left-color: #007bff; }\n" +
-            "    .card-2 { top: 15%%; right: 2.5%%; }\n" +
-            "    .card-3 { bottom: 10%%; left: 2.5%%; border-left-color: #dc3545; }\n" +
-            "    .card-4 { bottom: 10%%; right: 2.5%%; border-left-color: #28a745; }\n" +
-            "    \n" +
-            "    .metric-title {\n" +
-            "        position: absolute;\n" +
-            "        top: 25%%;\n" +
-            "        left: 0;\n" +
-            "        right: 0;\n" +
-            "        font-size: 16px;\n" +
-            "        color: #6c757d;\n" +
-            "        font-weight: bold;\n" +
-            "        text-transform: uppercase;\n" +
-            "        text-align: center;\n" +
-            "    }\n" +
-            "    \n" +
-            "    .metric-value {\n" +
-            "        position: absolute;\n" +
-            "        top: 55%%;\n" +
-            "        left: 0;\n" +
-            "        right: 0;\n" +
-            "        font-size: 32px;\n" +
-            "        font-weight: bold;\n" +
-            "        color: #212529;\n" +
-            "        text-align: center;\n" +
-            "    }\n" +
-            "    \n" +
-            "    .positive { color: #28a745; }\n" +
-            "    .negative { color: #dc3545; }\n" +
-            "</style>\n" +
-            "\n" +
-            "<div class=\"metrics-container\">\n" +
-            "    <div class=\"trader-header\">%s PERFORMANCE</div>\n" +
-            "    \n" +
-            "    <div class=\"metric-card card-1\">\n" +
-            "        <div class=\"metric-title\">TOTAL P&L</div>\n" +
-            "        <div class=\"metric-value %s\">%s$%.2f</div>\n" +
-            "    </div>\n" +
-            "    \n" +
-            "    <div class=\"metric-card card-2\">\n" +
-            "        <div class=\"metric-title\">TRADES</div>\n" +
-            "        <div class=\"metric-value\">%d</div>\n" +
-            "    </div>\n" +
-            "    \n" +
-            "    <div class=\"metric-card card-3\">\n" +
-            "        <div class=\"metric-title\">TOP SYMBOL</div>\n" +
-            "        <div class=\"metric-value\">%s</div>\n" +
-            "    </div>\n" +
-            "    \n" +
-            "    <div class=\"metric-card card-4\">\n" +
-            "        <div class=\"metric-title\">WIN RATE</div>\n" +
-            "        <div class=\"metric-value\">%.1f%%</div>\n" +
-            "    </div>\n" +
-            "</div>",
-            metrics.traderName.toUpperCase(),                // Trader name
-            pnlClass,                                        // CSS class
-            pnlSign,                                         // + or - sign
-            Math.abs(metrics.totalPnl),                      // P&L value
-            metrics.tradeCount,                              // Trade count
-            metrics.topSymbol,                               // Top symbol
-            metrics.winRate                                  // Win rate
-        );
-    }
-    
-    private void updateHtmlPanel(Object layout, String newHtml) {
+        // Precompiled template - see TraderHtmlRenderer
+        return TraderHtmlRenderer.render(metrics);
+    }
+    
+    private boolean updateHtmlPanel(Object layout, String newHtml) {
         try {
             System.out.println("=== UPDATING HTML PANEL ===");
             System.out.println("Layout class: " + layout.getClass().getSimpleName());
             
-            // Step 1: Try to get the getPanel method
-            java.lang.reflect.Method getPanelMethod = null;
-            try {
-                getPanelMethod = layout.getClass().getMethod("getPanel", String.class);
-                System.out.println("Found getPanel method");
-            } catch (Exception e) {
-                System.out.println("ERROR: getPanel method not found - " + e.getMessage());
-                return;
+            // Step 1: Try to get the Html1 panel (getPanel handle cached per layout class)
+            if (!ReflectiveDispatch.supports(layout, ReflectiveDispatch.Op.GET_PANEL)) {
+                System.out.println("ERROR: getPanel method not found");
+                return false;
             }
             
-            // Step 2: Try to get the Html1 panel
             Object htmlPanel = null;
             try {
-                htmlPanel = getPanelMethod.invoke(layout, "Html1");
+                htmlPanel = ReflectiveDispatch.getPanel(layout, "Html1");
                 System.out.println("Panel lookup result: " + (htmlPanel != null ? "Found" : "NULL"));
             } catch (Exception e) {
                 System.out.println("ERROR: Failed to get Html1 panel - " + e.getMessage());
-                return;
+                return false;
             }
             
             if (htmlPanel == null) {
                 System.out.println("ERROR: Html1 panel is null");
-                return;
+                return false;
             }
             
             System.out.println("Found Html1 panel: " + htmlPanel.getClass().getSimpleName());
             
-            // Step 3: Try to get the setValue method
-            java.lang.reflect.Method setValueMethod = null;
-            try {
-                setValueMethod = htmlPanel.getClass().getMethod("setValue", String.class, Object.class);
-                System.out.println("Found setValue method");
-            } catch (Exception e) {
-                System.out.println("ERROR: setValue method not found - " + e.getMessage());
-                return;
+            // Step 2: Resolve setValue(String, Object)
+            ReflectiveDispatch.Binding setValueMethod = ReflectiveDispatch.bind(htmlPanel, ReflectiveDispatch.Op.SET_KEYED_VALUE);
+            if (setValueMethod == null) {
+                System.out.println("ERROR: setValue method not found");
+                return false;
             }
             
-            // Step 4: Try to call setValue
+            // Step 3: Try to call setValue
             try {
                 Object result = setValueMethod.invoke(htmlPanel, "htmlTemplate2", newHtml);
                 System.out.println("setValue result: " + result);
@@ -298,35 +203,526 @@ public class TradingDashboardManager {
                 System.out.println("HTML length: " + newHtml.length() + " characters");
             } catch (Exception e) {
                 System.out.println("ERROR: setValue call failed - " + e.getMessage());
+                return false;
             }
             
             System.out.println("=== END HTML PANEL UPDATE ===");
+            return true;
             
         } catch (Exception e) {
             System.out.println("FATAL ERROR in updateHtmlPanel: " + e.getMessage());
             // Never let exceptions escape to AMI script
+            return false;
+        }
+    }
+    
+    // ========================================================================
+    // TRADE STORE LOADING
+    // ========================================================================
+    
+    @AmiScriptAccessible(name = "addTrade", params = { "timestamp", "symbol", "price", "volume", "side", "trader", "desk", "pnl" })
+    public int addTrade(long timestamp, String symbol, double price, long volume, String side, String trader, String desk, double pnl) {
+        return tradeStore.addTrade(timestamp, symbol, price, volume, side, trader, desk, pnl);
+    }
+    
+    /**
+     * Replaces the trade store contents with an AMI Table of the trades schema (timestamp,
+     * symbol, price, volume, side, trader, desk, pnl); called from the trades datamodel
+     * onComplete, so every refresh reloads the store instead of appending to it.
+     */
+    @AmiScriptAccessible(name = "loadTrades", params = { "table" })
+    public String loadTrades(Object table) {
+        try {
+            ReflectiveDispatch.Binding getRowsCount = ReflectiveDispatch.bind(table, ReflectiveDispatch.Op.GET_ROWS_COUNT);
+            ReflectiveDispatch.Binding getValue = ReflectiveDispatch.bind(table, ReflectiveDispatch.Op.GET_VALUE);
+            if (getRowsCount == null || getValue == null) {
+                return "ERROR loading trades: not a table (" + table.getClass().getSimpleName() + ")";
+            }
+            
+            // Read the whole table first so a bad row leaves the previous load in place
+            int rows = ((Number) getRowsCount.invoke(table)).intValue();
+            long[] timestamps = new long[rows];
+            String[] symbols = new String[rows];
+            double[] prices = new double[rows];
+            long[] volumes = new long[rows];
+            String[] sides = new String[rows];
+            String[] traders = new String[rows];
+            String[] desks = new String[rows];
+            double[] pnls = new double[rows];
+            for (int row = 0; row < rows; row++) {
+                timestamps[row] = ((Number) getValue.invoke(table, row, "timestamp")).longValue();
+                symbols[row] = String.valueOf(getValue.invoke(table, row, "symbol"));
+                prices[row] = ((Number) getValue.invoke(table, row, "price")).doubleValue();
+                volumes[row] = ((Number) getValue.invoke(table, row, "volume")).longValue();
+                sides[row] = String.valueOf(getValue.invoke(table, row, "side"));
+                traders[row] = String.valueOf(getValue.invoke(table, row, "trader"));
+                desks[row] = String.valueOf(getValue.invoke(table, row, "desk"));
+                pnls[row] = ((Number) getValue.invoke(table, row, "pnl")).doubleValue();
+            }
+            
+            // Readers never see a half-loaded store
+            synchronized (tradeStore) {
+                tradeStore.clear();
+                for (int row = 0; row < rows; row++) {
+                    tradeStore.addTrade(timestamps[row], symbols[row], prices[row], volumes[row],
+                        sides[row], traders[row], desks[row], pnls[row]);
+                }
+            }
+            
+            return "SUCCESS: Loaded " + rows + " trades (store size: " + tradeStore.size() + ")";
+            
+        } catch (Exception e) {
+            return "ERROR loading trades: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * WHERE clause for the marketdata heatmap when trader is selected, answered from the
+     * trader/symbol index instead of a DISTINCT subquery over the trades table.
+     */
+    @AmiScriptAccessible(name = "getHeatmapWhereClause", params = { "trader" })
+    public String getHeatmapWhereClause(Object trader) {
+        String traderName = trader.toString();
+        String where = symbolIndex.getSymbolWhereClause(traderName);
+        if (where != null) {
+            return where;
+        }
+        // Trader not in the store (e.g. trades not loaded) - let the datamodel work it out
+        return "symbol IN (SELECT DISTINCT symbol FROM trades WHERE trader = '" + traderName.replace("'", "''") + "')";
+    }
+    
+    @AmiScriptAccessible(name = "getTraderSymbols", params = { "trader" })
+    public String getTraderSymbols(Object trader) {
+        List<String> symbols = symbolIndex.getSymbols(trader.toString());
+        return symbols != null ? String.join(",", symbols) : "";
+    }
+    
+    @AmiScriptAccessible(name = "getSymbolTraders", params = { "symbol" })
+    public String getSymbolTraders(Object symbol) {
+        List<String> traders = symbolIndex.getTraders(symbol.toString());
+        return traders != null ? String.join(",", traders) : "";
+    }
+    
+    /**
+     * Chart-ready rows from the P&L cube, one Map (column name to value) per group.
+     * groupBy is any of "trader", "symbol" and "bucket", comma-separated; resolution is
+     * minute, hour or day; trader and symbol filter when not empty.
+     * Columns: bucket, trader, symbol (those grouped by), total_pnl, trade_count, avg_pnl,
+     * min_pnl, max_pnl, total_volume, min_volume, max_volume.
+     * An unknown resolution gives a single row with an "error" column holding "ERROR: ...".
+     */
+    @AmiScriptAccessible(name = "getPnlCube", params = { "groupBy", "resolution", "fromMillis", "toMillis", "trader", "symbol" })
+    public List<Map<String, Object>> getPnlCube(String groupBy, String resolution, long fromMillis, long toMillis, String trader, String symbol) {
+        PnlCube.Resolution parsed = PnlCube.Resolution.parse(resolution);
+        if (parsed == null) {
+            String error = "ERROR: unknown resolution '" + resolution + "' - use minute, hour or day";
+            System.out.println("❌ " + error);
+            return Collections.singletonList(Collections.<String, Object>singletonMap("error", error));
+        }
+        String groups = groupBy != null ? groupBy.toLowerCase() : "";
+        List<PnlCube.Row> rows = pnlCube.query(parsed, fromMillis, toMillis,
+            trader != null && !trader.isEmpty() ? trader : null,
+            symbol != null && !symbol.isEmpty() ? symbol : null,
+            groups.contains("trader"), groups.contains("symbol"), groups.contains("bucket"));
+        
+        List<Map<String, Object>> table = new ArrayList<>(rows.size());
+        for (PnlCube.Row row : rows) {
+            table.add(row.toMap());
+        }
+        return table;
+    }
+    
+    @AmiScriptAccessible(name = "getPnlByTrader")
+    public List<Map<String, Object>> getPnlByTrader() {
+        // Same groups as the pnl_by_trader datamodel, merged from day buckets instead of scanning trades
+        return getPnlCube("trader", "day", Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+    }
+    
+    /**
+     * The trades3 datamodel's pnl_by_trader rows as one AMI VALUES list, e.g.
+     * ("Mike Chen", 1200.5), ("Sarah Jones", -310.0), with the names escaped for a string literal.
+     * trader narrows the cube before the day buckets are merged; null or empty means every trader.
+     * Empty when the cube has no matching rows, e.g. before the trades datamodel has loaded the store.
+     */
+    @AmiScriptAccessible(name = "getPnlByTraderValues", params = { "trader" })
+    public String getPnlByTraderValues(String trader) {
+        List<PnlCube.Row> rows = pnlCube.query(PnlCube.Resolution.DAY, Long.MIN_VALUE, Long.MAX_VALUE,
+            trader != null && !trader.isEmpty() ? trader : null, null, true, false, false);
+        
+        StringBuilder values = new StringBuilder(rows.size() * 32);
+        for (PnlCube.Row row : rows) {
+            if (values.length() > 0) {
+                values.append(", ");
+            }
+            values.append("(\"");
+            appendAmiString(values, row.trader);
+            values.append("\", ").append(BigDecimal.valueOf(row.sumPnl).toPlainString()).append(')');
+        }
+        return values.toString();
+    }
+    
+    private static void appendAmiString(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '"': out.append("\\\""); break;
+                case '$': out.append("\\$"); break;   // no ${...} substitution inside the name
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
         }
     }
     
-    // Helper class for trader metrics
-    private static class TraderMetrics {
-        String traderName;
-        double totalPnl;
-        int tradeCount;
-        double winRate;
-        String topSymbol;
+    @AmiScriptAccessible(name = "getTraderWindows", params = { "trader" })
+    public List<Map<String, Object>> getTraderWindows(String trader) {
+        // One row per window: window, total_pnl, trade_count, win_rate
+        return rollingWindows.getTrader(trader).toRows();
+    }
+    
+    @AmiScriptAccessible(name = "getSymbolWindows", params = { "symbol" })
+    public List<Map<String, Object>> getSymbolWindows(String symbol) {
+        return rollingWindows.getSymbol(symbol).toRows();
+    }
+    
+    @AmiScriptAccessible(name = "clearTrades")
+    public String clearTrades() {
+        tradeStore.clear();
+        return "Trade store cleared";
     }
     
     @AmiScriptAccessible(name = "resetDashboard", params = { "layout" })
     public String resetDashboard(Object layout) {
         try {
-            // Reset dashboard to show all traders
+            // Reset dashboard to show all traders - Html1 no longer shows trader cards
+            panelDeltas.forget(layout);
             return "Dashboard reset to show all traders (Layout type: " + layout.getClass().getSimpleName() + ")";
         } catch (Exception e) {
             return "Error resetting dashboard: " + e.getMessage();
         }
     }
     
+    // ========================================================================
+    // REAL-TIME FEED - trades, orders and market data pushed to AMI via the relay
+    // ========================================================================
+    
+    /**
+     * Connects a feed to the AMI relay (ami.port, 3289 by default), replacing any running one.
+     * Messages are written in batches of batchSize, or flushMillis after the first one.
+     * The dashboard's datamodels keep querying MockData; feed trades reach Html1 and the chat
+     * through the trade store, and AMI's real-time tables only feed panels pointed at them.
+     */
+    @AmiScriptAccessible(name = "startTradeFeed", params = { "host", "port", "batchSize", "flushMillis", "queueCapacity" })
+    public String startTradeFeed(String host, int port, int batchSize, long flushMillis, int queueCapacity) {
+        stopTradeFeed();
+        TradeFeed.Sink sink = new TradeFeed.RelaySink(host, port, "trading-dashboard-feed", 5000);
+        tradeFeed = new TradeFeed(tradeStore, sink, batchSize, flushMillis, queueCapacity, 1000);
+        return "Trade feed started: " + host + ":" + port + " (batch " + batchSize + ", flush " + flushMillis + "ms)";
+    }
+    
+    @AmiScriptAccessible(name = "stopTradeFeed")
+    public String stopTradeFeed() {
+        TradeFeed feed = tradeFeed;
+        if (feed == null) {
+            return "Trade feed not running";
+        }
+        tradeFeed = null;
+        try {
+            feed.close();
+        } catch (Exception e) {
+            System.out.println("Error closing trade feed: " + e.getMessage());
+        }
+        return "Trade feed stopped at seq " + feed.getSequence();
+    }
+    
+    /**
+     * Publishes a trade to AMI and the in-process aggregators; without a running feed the trade
+     * only goes to the trade store.
+     *
+     * @return the feed sequence number, 0 without a feed, -1 if the feed is backed up
+     */
+    @AmiScriptAccessible(name = "publishTrade", params = { "timestamp", "symbol", "price", "volume", "side", "trader", "desk", "pnl" })
+    public long publishTrade(long timestamp, String symbol, double price, long volume, String side, String trader, String desk, double pnl) {
+        TradeFeed feed = tradeFeed;
+        if (feed == null) {
+            tradeStore.addTrade(timestamp, symbol, price, volume, side, trader, desk, pnl);
+            return 0;
+        }
+        return feed.publishTrade(timestamp, symbol, price, volume, side, trader, desk, pnl);
+    }
+    
+    @AmiScriptAccessible(name = "publishOrder", params = { "orderId", "symbol", "side", "quantity", "price", "status", "timestamp", "trader", "fillQuantity" })
+    public long publishOrder(String orderId, String symbol, String side, long quantity, double price, String status, long timestamp, String trader, long fillQuantity) {
+        TradeFeed feed = tradeFeed;
+        return feed == null ? 0 : feed.publishOrder(orderId, symbol, side, quantity, price, status, timestamp, trader, fillQuantity);
+    }
+    
+    @AmiScriptAccessible(name = "publishMarketData", params = { "symbol", "bid", "ask", "last", "volume", "change", "changePercent", "timestamp", "exchange" })
+    public long publishMarketData(String symbol, double bid, double ask, double last, long volume, double change, double changePercent, long timestamp, String exchange) {
+        TradeFeed feed = tradeFeed;
+        return feed == null ? 0 : feed.publishMarketData(symbol, bid, ask, last, volume, change, changePercent, timestamp, exchange);
+    }
+    
+    /**
+     * Replays a recorded feed file through the running feed on a background thread.
+     *
+     * @param speed 1 for recorded pace, 10 for ten times faster, 0 for as fast as possible
+     */
+    @AmiScriptAccessible(name = "replayFeedFile", params = { "path", "speed" })
+    public String replayFeedFile(String path, double speed) {
+        final TradeFeed feed = tradeFeed;
+        if (feed == null) {
+            return "ERROR: Trade feed not running";
+        }
+        final FileReplaySource source = new FileReplaySource(java.nio.file.Paths.get(path), speed);
+        Thread replay = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    source.replay(feed);
+                    System.out.println("✅ " + source.getStats());
+                } catch (Exception e) {
+                    System.out.println("❌ " + source.getStats() + " - failed: " + e.getMessage());
+                }
+            }
+        }, "trading-dashboard-replay");
+        replay.setDaemon(true);
+        replay.start();
+        return "QUEUED: Replay of " + path;
+    }
+    
+    @AmiScriptAccessible(name = "getTradeFeedStats")
+    public String getTradeFeedStats() {
+        TradeFeed feed = tradeFeed;
+        return feed == null ? "Trade feed not running" : feed.getStats();
+    }
+    
+    // ========================================================================
+    // SYNTHETIC LOAD - seeded market and trade streams for capacity testing
+    // ========================================================================
+    
+    /**
+     * Starts a seeded synthetic stream of events on a background thread.
+     *
+     * Any previous run is stopped and waited for first, so two runs never write at once. Calls
+     * from concurrent sessions take turns: only one of them stops and starts a run at a time.
+     *
+     * @param eventsPerSecond simulated rate, also the real rate; 0 for unthrottled at 10,000/s of simulated time
+     * @param target "store" (trades into the trade store), "feed" (every table through the running
+     *               trade feed), "sqlite:path/to/file.db" or "binary:path/to/directory"
+     */
+    @AmiScriptAccessible(name = "generateSyntheticData", params = { "seed", "events", "eventsPerSecond", "traders", "symbols", "target" })
+    public String generateSyntheticData(long seed, final long events, double eventsPerSecond, int traders, int symbols, final String target) {
+        synchronized (generatorLock) {
+            SyntheticMarketGenerator running = generator;
+            if (running != null) {
+                running.stop();
+            }
+            Thread previous = generatorThread;
+            if (previous != null) {
+                try {
+                    previous.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (previous.isAlive()) {
+                    return "ERROR: Previous synthetic run is still stopping - try again";
+                }
+            }
+        
+            boolean live = !target.startsWith("sqlite:") && !target.startsWith("binary:");
+            SyntheticMarketGenerator.Config config = new SyntheticMarketGenerator.Config();
+            config.seed = seed;
+            config.traders = traders;
+            config.symbols = symbols;
+            config.throttle = eventsPerSecond > 0;
+            if (eventsPerSecond > 0) {
+                config.eventsPerSecond = eventsPerSecond;
+            }
+            if (config.throttle && live) {
+                // Paced events into the store or feed are read as live - the rolling windows are relative to now
+                config.startMillis = System.currentTimeMillis();
+            }
+        
+            final SyntheticMarketGenerator next;
+            final SyntheticMarketGenerator.Sink sink;
+            try {
+                next = new SyntheticMarketGenerator(config);
+                if (target.startsWith("sqlite:")) {
+                    sink = new SyntheticMarketGenerator.JdbcSink(next, "jdbc:sqlite:" + target.substring(7), 10000);
+                } else if (target.startsWith("binary:")) {
+                    sink = new SyntheticMarketGenerator.BinarySink(next, java.nio.file.Paths.get(target.substring(7)));
+                } else if (target.equals("feed")) {
+                    if (tradeFeed == null) {
+                        return "ERROR: Trade feed not running";
+                    }
+                    sink = new SyntheticMarketGenerator.InProcessSink(next, tradeStore, tradeFeed);
+                } else {
+                    sink = new SyntheticMarketGenerator.InProcessSink(next, tradeStore, null);
+                }
+            } catch (Exception e) {
+                return "ERROR: " + e.getMessage();
+            }
+        
+            generator = next;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (SyntheticMarketGenerator.Sink out = sink) {
+                        next.run(out, events);
+                        System.out.println("✅ " + next.getStats() + " -> " + target);
+                    } catch (Exception e) {
+                        System.out.println("❌ " + next.getStats() + " -> " + target + " failed: " + e.getMessage());
+                    }
+                }
+            }, "trading-dashboard-generator");
+            thread.setDaemon(true);
+            generatorThread = thread;
+            thread.start();
+            return "QUEUED: " + events + " synthetic events -> " + target;
+        }
+    }
+    
+    @AmiScriptAccessible(name = "stopSyntheticData")
+    public String stopSyntheticData() {
+        SyntheticMarketGenerator running = generator;
+        if (running == null) {
+            return "Generator not running";
+        }
+        running.stop();
+        return running.getStats();
+    }
+    
+    @AmiScriptAccessible(name = "getGeneratorStats")
+    public String getGeneratorStats() {
+        SyntheticMarketGenerator running = generator;
+        return running == null ? "Generator not started" : running.getStats();
+    }
+    
+    // ========================================================================
+    // COALESCED SELECTION - trader clicks precomputed off-thread, applied by the dashboard script
+    // ========================================================================
+    
+    /**
+     * Records trader as the latest selection for layout and renders their cards in the
+     * background, latest-wins within a burst of clicks. Nothing touches the panels here: the
+     * script picks the selection up with takeSelectedTrader on the AMI session thread.
+     */
+    @AmiScriptAccessible(name = "scheduleTraderMetrics", params = { "trader", "layout" })
+    public String scheduleTraderMetrics(Object trader, Object layout) {
+        final String traderName = trader.toString();
+        pendingSelections.put(layout, traderName);
+        selectionCoalescer.submit(layout, new SelectionCoalescer.Task() {
+            @Override
+            public void run(BooleanSupplier superseded) {
+                if (!superseded.getAsBoolean() && tradeStore.size() > 0) {
+                    metricsCache.get(traderName).getHtml();
+                }
+            }
+        });
+        return "QUEUED: Trader metrics for " + traderName;
+    }
+    
+    /**
+     * Starts a filter run for the latest selection, unless one is already in flight for layout.
+     * A burst of clicks thus re-processes the datamodels at most twice: once for the first
+     * click, and once more from the trades3 onComplete (see finishSelectedTrader) for the latest
+     * click that arrived meanwhile. The script processes trades3 and marketdata1 for the
+     * returned trader, e.g. with processSelectedTrader.
+     *
+     * @return the trader to filter the dashboard to, or null if none is pending or a run is in flight
+     */
+    @AmiScriptAccessible(name = "takeSelectedTrader", params = { "layout" })
+    public String takeSelectedTrader(Object layout) {
+        synchronized (pendingSelections) {
+            SelectionRun run = selectionRuns.get(layout);
+            if (run != null && System.currentTimeMillis() - run.startMillis < SELECTION_RUN_TIMEOUT_MILLIS) {
+                return null;
+            }
+            String trader = pendingSelections.remove(layout);
+            if (trader != null) {
+                selectionRuns.put(layout, new SelectionRun(trader, System.currentTimeMillis()));
+            } else {
+                selectionRuns.remove(layout);
+            }
+            return trader;
+        }
+    }
+    
+    /**
+     * Ends the filter run started by takeSelectedTrader, from the trades3 onComplete. The script
+     * then renders Html1 for the returned trader and calls takeSelectedTrader again for any
+     * click that arrived while the run was in flight.
+     *
+     * @return the trader the finished run was for, or null if no run was in flight (trades3 was
+     *         processed for another reason)
+     */
+    @AmiScriptAccessible(name = "finishSelectedTrader", params = { "layout" })
+    public String finishSelectedTrader(Object layout) {
+        synchronized (pendingSelections) {
+            SelectionRun run = selectionRuns.remove(layout);
+            return run != null ? run.trader : null;
+        }
+    }
+    
+    /**
+     * Filters the P&L chart (trades3) and the heatmap (marketdata1) to trader in one batch.
+     * Call from the AMI session thread.
+     */
+    @AmiScriptAccessible(name = "processSelectedTrader", params = { "trader", "layout" })
+    public String processSelectedTrader(Object trader, Object layout) {
+        String traderName = trader.toString();
+        Map<String, Object> filterParams = new HashMap<>();
+        filterParams.put("WHERE", "trader = '" + traderName.replace("'", "''") + "'");
+        filterParams.put("trader", traderName); // lets trades3 narrow the P&L cube, see getPnlByTraderValues
+        Map<String, Object> heatmapParams = new HashMap<>();
+        heatmapParams.put("WHERE", getHeatmapWhereClause(traderName));
+        
+        PanelBatch batch = PanelManager.beginBatch();
+        batch.processDatamodel(layout, "trades3", filterParams);
+        batch.processDatamodel(layout, "marketdata1", heatmapParams);
+        return batch.commit();
+    }
+    
+    /**
+     * Drops any pending trader selection and in-flight filter run for layout, so a late
+     * trades3 onComplete does not bring back a trader after the script has reset Html1 itself.
+     */
+    @AmiScriptAccessible(name = "scheduleResetDashboard", params = { "layout" })
+    public String scheduleResetDashboard(Object layout) {
+        synchronized (pendingSelections) {
+            pendingSelections.remove(layout);
+            selectionRuns.remove(layout);
+        }
+        selectionCoalescer.cancel(layout);
+        return resetDashboard(layout);
+    }
+    
+    @AmiScriptAccessible(name = "configureSelectionCoalescing", params = { "debounceMillis", "maxLatencyMillis" })
+    public String configureSelectionCoalescing(long debounceMillis, long maxLatencyMillis) {
+        selectionCoalescer.configure(debounceMillis, maxLatencyMillis);
+        return "Selection coalescing: debounce " + selectionCoalescer.getDebounceMillis()
+            + "ms, max latency " + selectionCoalescer.getMaxLatencyMillis() + "ms";
+    }
+    
+    /**
+     * Must be called by any AMI script that rewrites Html1 itself (e.g. the overview HTML),
+     * so the next trader update is not skipped as "already current" and a trader click still
+     * pending does not overwrite what the script just showed.
+     */
+    @AmiScriptAccessible(name = "invalidatePanelState", params = { "layout" })
+    public String invalidatePanelState(Object layout) {
+        panelDeltas.forget(layout);
+        pendingSelections.remove(layout);
+        return "Panel state cleared";
+    }
+    
+    @AmiScriptAccessible(name = "getMetricsCacheStats")
+    public String getMetricsCacheStats() {
+        return metricsCache.getStats();
+    }
+    
     @AmiScriptAccessible(name = "debugInfo")
     public String debugInfo() {
         return "TradingDashboardManager is working! Version 1.0";
@@ -387,10 +783,9 @@ public class TradingDashboardManager {
         try {
             String traderName = trader.toString();
             TraderMetrics metrics = calculateTraderMetrics(traderName, null);
-            String html = generateTraderHTML(metrics);
             
             // Return first 200 characters so we can see it in the logs
-            String preview = html.length() > 200 ? html.substring(0, 200) + "..." : html;
+            String preview = TraderHtmlRenderer.renderPreview(metrics, 200);
             return "HTML Preview for " + traderName + ": " + preview;
         } catch (Exception e) {
             return "Error generating HTML preview: " + e.getMessage();
@@ -407,6 +802,91 @@ public class TradingDashboardManager {
         return chatbot.processChatMessage(userMessage);
     }
     
+    /**
+     * Non-blocking chat. An answer that is ready at once is pushed to the chat panel and its command
+     * (FILTER_TRADER / RESET_DASHBOARD) run against the layout straight away. Otherwise the pending
+     * response's pendingId goes to the chat_poll datamodel, whose onComplete calls takeChatReply on
+     * every tick until the LLM has answered.
+     */
+    @AmiScriptAccessible(name = "processChatMessageAsync", params = {"userMessage", "session", "layout"})
+    public String processChatMessageAsync(Object userMessage, Object session, Object layout) {
+        return runChatCommand(chatbot.processChatMessageAsync(userMessage, session, layout), layout);
+    }
+    
+    /**
+     * The chat input's path (Html3 onEnterKey): like processChatMessageAsync, but each chat_poll
+     * tick renders the answer streamed so far, so it is typed into the chat panel as it arrives.
+     */
+    @AmiScriptAccessible(name = "streamChatMessage", params = {"userMessage", "session", "layout"})
+    public String streamChatMessage(Object userMessage, Object session, Object layout) {
+        return runChatCommand(chatbot.streamChatMessage(userMessage, session, layout), layout);
+    }
+    
+    @AmiScriptAccessible(name = "takeChatReply", params = {"pendingId", "layout"})
+    public String takeChatReply(String pendingId, Object layout) {
+        // Pushes a finished LLM answer and runs its command, or answers pending again (see chat_poll)
+        return runChatCommand(chatbot.takeChatReply(pendingId, layout), layout);
+    }
+    
+    private String runChatCommand(String chatResponse, Object layout) {
+        if (chatResponse != null && !chatbot.isPendingResponse(chatResponse)) {
+            System.out.println("🤖 " + processChatCommand(chatResponse, layout));
+        }
+        return chatResponse;
+    }
+    
+    @AmiScriptAccessible(name = "configureLlmClient", params = {"baseUrl", "maxInFlight", "timeoutMillis"})
+    public String configureLlmClient(String baseUrl, int maxInFlight, int timeoutMillis) {
+        TradingAiChatbotFinal.setLlmClient(new LlmClient(baseUrl, maxInFlight, Math.min(timeoutMillis, 2000), timeoutMillis));
+        return TradingAiChatbotFinal.getLlmClient().getStats();
+    }
+    
+    @AmiScriptAccessible(name = "getCachedChatResponse", params = {"userInput", "user"})
+    public String getCachedChatResponse(Object userInput, Object user) {
+        // Delegate to chatbot - per-user (keyed by username), normalized-query cache of LLM answers
+        return chatbot.getCachedChatResponse(userInput, user);
+    }
+    
+    @AmiScriptAccessible(name = "getChatCacheVersion")
+    public long getChatCacheVersion() {
+        // Read before the question goes to the proxy, passed back to cacheChatResponse
+        return chatbot.getChatCacheVersion();
+    }
+    
+    @AmiScriptAccessible(name = "cacheChatResponse", params = {"userInput", "aiResponse", "user", "cacheVersion"})
+    public String cacheChatResponse(Object userInput, Object aiResponse, Object user, long cacheVersion) {
+        return chatbot.cacheChatResponse(userInput, aiResponse, user, cacheVersion);
+    }
+    
+    @AmiScriptAccessible(name = "getChatCacheStats")
+    public String getChatCacheStats() {
+        return chatbot.getChatCacheStats();
+    }
+    
+    @AmiScriptAccessible(name = "getLlmClientStats")
+    public String getLlmClientStats() {
+        return TradingAiChatbotFinal.getLlmClient().getStats();
+    }
+    
+    @AmiScriptAccessible(name = "getPromptContext")
+    public String getPromptContext() {
+        // Delegate to chatbot - compact live data summary sent to the LLM
+        return chatbot.getPromptContext();
+    }
+    
+    @AmiScriptAccessible(name = "configureLlmRouter", params = {"budgetMillis", "failureThreshold", "openSeconds"})
+    public String configureLlmRouter(long budgetMillis, int failureThreshold, int openSeconds) {
+        // Fresh breaker and route statistics with the new thresholds
+        TradingAiChatbotFinal.setLlmRouter(new LlmRouter(budgetMillis, failureThreshold, openSeconds * 1000L));
+        return TradingAiChatbotFinal.getLlmRouter().getStats();
+    }
+    
+    @AmiScriptAccessible(name = "getLlmRouterStats")
+    public String getLlmRouterStats() {
+        // Per-route latency (local, cache, llm, fallback) and circuit breaker state
+        return TradingAiChatbotFinal.getLlmRouter().getStats();
+    }
+    
     @AmiScriptAccessible(name = "processChatMessageWithSession", params = {"userMessage", "session"})
     public String processChatMessageWithSession(Object userMessage, Object session) {
         // Delegate to chatbot with session context
@@ -426,6 +906,30 @@ public class TradingDashboardManager {
         return chatbot.generateChatHtml(userInput, chatResponse);
     }
     
+    @AmiScriptAccessible(name = "generateChatHtmlWithSession", params = {"userInput", "chatResponse", "session"})
+    public String generateChatHtmlWithSession(Object userInput, Object chatResponse, Object session) {
+        // Delegate to chatbot - history is kept per session
+        return chatbot.generateChatHtmlWithSession(userInput, chatResponse, session);
+    }
+    
+    @AmiScriptAccessible(name = "getChatPage", params = {"session", "offset", "limit"})
+    public String getChatPage(Object session, int offset, int limit) {
+        // Delegate to chatbot - older message pairs for the chat panel, loaded on demand
+        return chatbot.getChatPage(session, offset, limit);
+    }
+    
+    @AmiScriptAccessible(name = "showEarlierChatMessages", params = {"session"})
+    public String showEarlierChatMessages(Object session) {
+        // Delegate to chatbot - the chat page with one more page of earlier message pairs
+        return chatbot.showEarlierChatMessages(session);
+    }
+    
+    @AmiScriptAccessible(name = "pushChatMessage", params = {"userInput", "chatResponse", "session", "layout"})
+    public String pushChatMessage(Object userInput, Object chatResponse, Object session, Object layout) {
+        // Delegate to chatbot - appends only the new message pair to Html2 when possible
+        return chatbot.pushChatMessage(userInput, chatResponse, session, layout);
+    }
+    
     @AmiScriptAccessible(name = "getChatHistory")
     public String getChatHistory() {
         // Delegate to chatbot (dumb component utility)
@@ -438,32 +942,47 @@ public class TradingDashboardManager {
         return chatbot.clearChatHistory();
     }
     
+    @AmiScriptAccessible(name = "clearChatHistoryWithSession", params = {"session"})
+    public String clearChatHistoryWithSession(Object session) {
+        // Delegate to chatbot (dumb component utility)
+        return chatbot.clearChatHistoryWithSession(session);
+    }
+    
     @AmiScriptAccessible(name = "processChatCommand", params = {"chatResponse", "layout"})
     public String processChatCommand(Object chatResponse, Object layout) {
         try {
             String jsonResponse = chatResponse.toString();
             
-            // Use chatbot for JSON parsing (dumb component utility)
-            String command = chatbot.extractJsonField(jsonResponse, "command");
-            String trader = chatbot.extractJsonField(jsonResponse, "trader");
-
+            // Parse the response once and read every field from the result
+            JsonResponseReader.Result response = JsonResponseReader.parse(jsonResponse);
+            String command = response.getCommand();
+            String trader = response.getTrader();
                 
             String layoutInfo = (layout != null ? layout.getClass().getSimpleName() : "null");
             
             // Handle business logic here (smart component decisions)
             if ("FILTER_TRADER".equals(command) && trader != null && !trader.isEmpty()) {
-                // Execute the trader filter using our existing method
+                // Trader cards in Html1, then the P&L chart and heatmap filtered in one batch
                 String result = updateTraderMetrics(trader, layout);
+                String batchResult = processSelectedTrader(trader, layout);
                 
-                return String.format("FILTER_TRADER executed | Trader: %s | Layout: %s | Result: %s", 
-                    trader, layoutInfo, result);
+                return String.format("FILTER_TRADER executed | Trader: %s | Layout: %s | Result: %s | %s", 
+                    trader, layoutInfo, result, batchResult);
                 
             } else if ("RESET_DASHBOARD".equals(command)) {
-                // Execute dashboard reset using our existing method
-                String result = resetDashboard(layout);
+                // Overview back in Html1 and every datamodel unfiltered, in one batch
+                String result = scheduleResetDashboard(layout);
+                Map<String, Object> resetParams = new HashMap<>();
+                resetParams.put("WHERE", "true");
+                
+                PanelBatch batch = PanelManager.beginBatch();
+                batch.setHtml(layout, "Html1", TraderHtmlRenderer.OVERVIEW_HTML);
+                batch.processDatamodel(layout, "trades3", resetParams);
+                batch.processDatamodel(layout, "marketdata1", resetParams);
+                String batchResult = batch.commit();
                 
-                return String.format("RESET_DASHBOARD executed | Layout: %s | Result: %s", 
-                    layoutInfo, result);
+                return String.format("RESET_DASHBOARD executed | Layout: %s | Result: %s | %s", 
+                    layoutInfo, result, batchResult);
                 
             } else {
                 return String.format("No command found | Command: %s | Trader: %s | Layout: %s", 
@@ -548,4 +1067,17 @@ public class TradingDashboardManager {
     public String getCurrentChatQuery() {
         return this.currentChatQuery;
     }
+    
+    /**
+     * A trader filter run started by takeSelectedTrader and not yet finished.
+     */
+    private static final class SelectionRun {
+        final String trader;
+        final long startMillis;
+        
+        SelectionRun(String trader, long startMillis) {
+            this.trader = trader;
+            this.startMillis = startMillis;
+        }
+    }
 } 
\ No newline at end of file